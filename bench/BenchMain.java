@@ -0,0 +1,20 @@
+import test.LiteDriver;
+
+/**
+ * Runs LiteUnit's smoke timings of itself. These are quick @LiteBenchmark runs in a single JVM,
+ * good for spotting large regressions but not a replacement for JMH. Compile bench/ together
+ * with src/ and run this with both on the classpath. The means are saved to bench_results.properties; pass the path of an
+ * earlier results file to flag anything that got more than 10% slower.
+ */
+public class BenchMain {
+
+    public static void main(String[] args) {
+        LiteDriver driver = LiteDriver.fromClasspath("test");
+        if(args.length > 0)
+            driver.setBenchmarkBaseline(args[0], 0.1);
+        driver.queueTests();
+        driver.executeQueuedTests();
+        driver.prettyPrint();
+        driver.saveBenchmarks("bench_results.properties");
+    }
+}
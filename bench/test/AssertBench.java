@@ -0,0 +1,50 @@
+package test;
+
+import asserts.LiteAssertFailedException;
+import test.annotations.LiteBenchmark;
+import test.annotations.LiteClass;
+
+import java.util.function.Supplier;
+
+import static asserts.LiteAsserts.*;
+
+/**
+ * Measures passing assertions, which should cost a comparison and allocate nothing.
+ */
+@LiteClass(sharedInstance = true)
+public class AssertBench {
+
+    private static final Supplier<String> HALVES_DIFFER = new Supplier<String>() {
+        @Override
+        public String get() {
+            return "halves differ";
+        }
+    };
+
+    private int counter;
+    private int[] expected = {1, 2, 3, 4, 5, 6, 7, 8};
+    private int[] actual = {1, 2, 3, 4, 5, 6, 7, 8};
+
+    @LiteBenchmark(batchSize = 100000)
+    public void assertEqualsInt() throws LiteAssertFailedException {
+        counter++;
+        assertEquals(counter, counter);
+    }
+
+    @LiteBenchmark(batchSize = 100000)
+    public void assertEqualsDoubleWithSupplier() throws LiteAssertFailedException {
+        counter++;
+        assertEqualsLazy(counter * 0.5, counter / 2.0, 1e-9, HALVES_DIFFER);
+    }
+
+    @LiteBenchmark(batchSize = 100000)
+    public void assertInRangeLong() throws LiteAssertFailedException {
+        counter++;
+        assertInRange((long) counter, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    @LiteBenchmark(batchSize = 100000)
+    public void assertArrayEqualsInt() throws LiteAssertFailedException {
+        assertArrayEquals(expected, actual);
+    }
+}
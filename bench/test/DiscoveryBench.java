@@ -0,0 +1,94 @@
+package test;
+
+import test.annotations.LiteAfterClass;
+import test.annotations.LiteBeforeClass;
+import test.annotations.LiteBenchmark;
+import test.annotations.LiteClass;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Measures LiteTarget.makeTestList() over synthetic classpath trees of 1k, 10k and 100k
+ * classes, 100 to a package. Every class file is a copy of EmptyTarget's, which has no
+ * @LiteClass annotation, so the numbers cover the walk and the class file prefilter.
+ */
+@LiteClass(sharedInstance = true)
+public class DiscoveryBench {
+
+    private Path root;
+    private LiteTarget small;
+    private LiteTarget medium;
+    private LiteTarget large;
+
+    @LiteBeforeClass
+    public void buildTrees() throws IOException {
+        byte[] classFile;
+        try (InputStream in = EmptyTarget.class.getResourceAsStream("EmptyTarget.class")) {
+            classFile = readAll(in);
+        }
+        root = Files.createTempDirectory("liteunit-bench");
+        small = makeTree("small", 1000, classFile);
+        medium = makeTree("medium", 10000, classFile);
+        large = makeTree("large", 100000, classFile);
+    }
+
+    @LiteAfterClass
+    public void deleteTrees() throws IOException {
+        List<Path> paths;
+        try (Stream<Path> tree = Files.walk(root)) {
+            paths = tree.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        }
+        for(Path path : paths)
+            Files.delete(path);
+    }
+
+    @LiteBenchmark(warmupIterations = 2, iterations = 5, batchSize = 10)
+    public void scan1k(LiteBlackhole blackhole) {
+        blackhole.consume(small.makeTestList());
+    }
+
+    @LiteBenchmark(warmupIterations = 1, iterations = 5, batchSize = 1)
+    public void scan10k(LiteBlackhole blackhole) {
+        blackhole.consume(medium.makeTestList());
+    }
+
+    @LiteBenchmark(warmupIterations = 1, iterations = 3, batchSize = 1)
+    public void scan100k(LiteBlackhole blackhole) {
+        blackhole.consume(large.makeTestList());
+    }
+
+    private LiteTarget makeTree(String name, int classCount, byte[] classFile) throws IOException {
+        Path treeRoot = root.resolve(name);
+        for(int i = 0; i < classCount; i++) {
+            Path pkg = treeRoot.resolve("synthetic").resolve("p" + (i / 100));
+            if(i % 100 == 0)
+                Files.createDirectories(pkg);
+            Files.write(pkg.resolve("C" + i + ".class"), classFile);
+        }
+        LiteTarget target = new LiteTarget(new LiteClasspath(Collections.singletonList(treeRoot)), "synthetic", true, true);
+        target.setClassLoader(new URLClassLoader(new URL[]{treeRoot.toUri().toURL()}, null));
+        return target;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        byte[] buffer = new byte[4096];
+        int length = 0;
+        int read;
+        while((read = in.read(buffer, length, buffer.length - length)) > 0) {
+            length += read;
+            if(length == buffer.length)
+                buffer = java.util.Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        return java.util.Arrays.copyOf(buffer, length);
+    }
+}
@@ -0,0 +1,19 @@
+package test;
+
+import test.annotations.LiteTest;
+
+/**
+ * A test class whose tests do nothing, used by the benchmarks to measure LiteUnit's own
+ * overhead. It is deliberately not marked with @LiteClass, so it is never queued itself.
+ */
+public class EmptyTarget {
+
+    @LiteTest
+    public void empty() {
+    }
+
+    @LiteTest
+    public void failing() {
+        throw new IllegalStateException("failing on purpose");
+    }
+}
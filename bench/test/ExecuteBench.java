@@ -0,0 +1,42 @@
+package test;
+
+import test.annotations.LiteBenchmark;
+import test.annotations.LiteClass;
+
+import java.lang.reflect.Method;
+
+/**
+ * Measures what LiteTest.execute() adds on top of the test itself, with plain reflection
+ * as a point of comparison.
+ */
+@LiteClass(sharedInstance = true)
+public class ExecuteBench {
+
+    private LiteTest passing;
+    private LiteTest failing;
+    private Method reflected;
+    private EmptyTarget target = new EmptyTarget();
+
+    public ExecuteBench() throws NoSuchMethodException {
+        passing = new LiteTest(EmptyTarget.class, EmptyTarget.class.getMethod("empty"));
+        failing = new LiteTest(EmptyTarget.class, EmptyTarget.class.getMethod("failing"));
+        reflected = EmptyTarget.class.getMethod("empty");
+    }
+
+    @LiteBenchmark(batchSize = 10000)
+    public void executePassing(LiteBlackhole blackhole) {
+        passing.execute();
+        blackhole.consume(passing.passed);
+    }
+
+    @LiteBenchmark(batchSize = 1000)
+    public void executeFailing(LiteBlackhole blackhole) {
+        failing.execute();
+        blackhole.consume(failing.error);
+    }
+
+    @LiteBenchmark(batchSize = 10000)
+    public void reflectionBaseline(LiteBlackhole blackhole) throws ReflectiveOperationException {
+        blackhole.consume(reflected.invoke(target));
+    }
+}
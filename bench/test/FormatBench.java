@@ -0,0 +1,39 @@
+package test;
+
+import test.annotations.LiteBenchmark;
+import test.annotations.LiteClass;
+
+/**
+ * Measures how long it takes to format a failure for printing, using an error thrown from
+ * 64 frames below the test method.
+ */
+@LiteClass(sharedInstance = true)
+public class FormatBench {
+
+    private LiteTest failed;
+
+    public FormatBench() throws NoSuchMethodException {
+        failed = new LiteTest(EmptyTarget.class, EmptyTarget.class.getMethod("failing"));
+        failed.error = deepError(64);
+        failed.passed = false;
+        failed.hasRun = true;
+    }
+
+    @LiteBenchmark(batchSize = 1000)
+    public void getTestException(LiteBlackhole blackhole) {
+        failed.failure = null;
+        blackhole.consume(failed.getTestException());
+    }
+
+    @LiteBenchmark(batchSize = 1000)
+    public void getTestTrace(LiteBlackhole blackhole) {
+        failed.failure = null;
+        blackhole.consume(failed.getTestTrace());
+    }
+
+    private static Throwable deepError(int depth) {
+        if(depth == 0)
+            return new IllegalStateException("failing on purpose");
+        return deepError(depth - 1);
+    }
+}
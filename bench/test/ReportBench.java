@@ -0,0 +1,69 @@
+package test;
+
+import test.annotations.LiteAfter;
+import test.annotations.LiteBefore;
+import test.annotations.LiteBeforeClass;
+import test.annotations.LiteBenchmark;
+import test.annotations.LiteClass;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures LiteDriver.prettyPrint() over 10k results, one in ten of them failures. The
+ * output is thrown away while the benchmark runs.
+ */
+@LiteClass(sharedInstance = true)
+public class ReportBench {
+
+    private LiteDriver driver;
+    private PrintStream console;
+
+    @LiteBeforeClass
+    public void runTests() throws NoSuchMethodException {
+        List<LiteTest> tests = new ArrayList<>();
+        for(int i = 0; i < 10000; i++) {
+            String method = i % 10 == 0 ? "failing" : "empty";
+            LiteTest test = new LiteTest(EmptyTarget.class, EmptyTarget.class.getMethod(method));
+            test.testId = String.valueOf(i);
+            tests.add(test);
+        }
+        console = System.out;
+        discardOutput();
+        driver = LiteDriver.fromClasspath("");
+        driver.queue(tests);
+        driver.executeQueuedTests();
+        System.setOut(console);
+    }
+
+    @LiteBefore
+    public void discardOutput() {
+        console = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+    }
+
+    @LiteAfter
+    public void restoreOutput() {
+        System.setOut(console);
+    }
+
+    @LiteBenchmark(warmupIterations = 3, iterations = 5, batchSize = 1)
+    public void prettyPrint() {
+        driver.prettyPrint();
+    }
+
+    @LiteBenchmark(warmupIterations = 3, iterations = 5, batchSize = 1)
+    public void prettyPrintFullTrace() {
+        driver.prettyPrint(true);
+    }
+}
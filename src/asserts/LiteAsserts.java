@@ -1,11 +1,32 @@
 package asserts;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
 /**
  * LiteAsserts provides a few of the standard assertions. It does this independent of the
  * Assert class built into Java and JUnit. When these tests fail, they throw a LiteAssertFailedException.
  * <br>
  * All methods are run statically, so "import static LiteAsserts.*;" makes it easy to use the assertions.
  * All methods have an overload that allows the user to include a message that is printed is the assertion fails.
+ * <br>
+ * Each assertion also has a ...Lazy variant, such as assertEqualsLazy(), that takes the message as
+ * a Supplier instead. The Supplier is only called if the assertion fails, so building the message
+ * costs nothing while the assertion passes. They have names of their own so that a call passing a
+ * null message still picks the String overload. The assertions on primitives and primitive arrays
+ * compare the values directly, without boxing them, so a passing assertion does not allocate
+ * anything as long as any Supplier it is given is a lambda that captures nothing or is created
+ * outside the loop.
+ * <br>
+ * Primitive arguments pick the primitive overloads and are compared as numbers, after the usual
+ * widening: assertEquals('a', 97) and assertEquals(1, 1L) pass, since the char or int is widened.
+ * A call that mixes a primitive with a wrapper, such as assertEquals(1, Integer.valueOf(1)),
+ * matches both a primitive and the Object overload and needs a cast to pick one.
+ * <br>
+ * assertNotEquals(Object, Object) fails only when its arguments are equal, like the primitive
+ * overloads. It used to fail when they differed; the change is deliberate.
  */
 public class LiteAsserts {
 
@@ -16,8 +37,30 @@ public class LiteAsserts {
 
     }
 
+    public static void assertTrueLazy(boolean condition, Supplier<String> message) throws LiteAssertFailedException {
+        if(!condition) {
+            assertFailed(get(message));
+        }
+    }
+
     public static void assertTrue(boolean condition) throws LiteAssertFailedException {
-        assertTrue(condition, null);
+        assertTrue(condition, (String) null);
+    }
+
+    public static void assertFalse(boolean condition, String message) throws LiteAssertFailedException {
+        if(condition) {
+            assertFailed(message);
+        }
+    }
+
+    public static void assertFalseLazy(boolean condition, Supplier<String> message) throws LiteAssertFailedException {
+        if(condition) {
+            assertFailed(get(message));
+        }
+    }
+
+    public static void assertFalse(boolean condition) throws LiteAssertFailedException {
+        assertFalse(condition, (String) null);
     }
 
     public static void assertEquals(Object expected, Object actual, String message) throws LiteAssertFailedException {
@@ -28,35 +71,168 @@ public class LiteAsserts {
         }
     }
 
+    public static void assertEqualsLazy(Object expected, Object actual, Supplier<String> message) throws LiteAssertFailedException {
+        if(expected != null || actual != null) {
+            if(expected == null || !expected.equals(actual)) {
+                assertMatchFailed(expected, actual, get(message));
+            }
+        }
+    }
+
     public static void assertEquals(Object expected, Object actual) throws LiteAssertFailedException {
-        assertEquals(expected, actual, null);
+        assertEquals(expected, actual, (String) null);
+    }
+
+    public static void assertEquals(int expected, int actual, String message) throws LiteAssertFailedException {
+        if(expected != actual) {
+            assertMatchFailed(expected, actual, message);
+        }
+    }
+
+    public static void assertEqualsLazy(int expected, int actual, Supplier<String> message) throws LiteAssertFailedException {
+        if(expected != actual) {
+            assertMatchFailed(expected, actual, get(message));
+        }
+    }
+
+    public static void assertEquals(int expected, int actual) throws LiteAssertFailedException {
+        assertEquals(expected, actual, (String) null);
+    }
+
+    public static void assertEquals(long expected, long actual, String message) throws LiteAssertFailedException {
+        if(expected != actual) {
+            assertMatchFailed(expected, actual, message);
+        }
+    }
+
+    public static void assertEqualsLazy(long expected, long actual, Supplier<String> message) throws LiteAssertFailedException {
+        if(expected != actual) {
+            assertMatchFailed(expected, actual, get(message));
+        }
+    }
+
+    public static void assertEquals(long expected, long actual) throws LiteAssertFailedException {
+        assertEquals(expected, actual, (String) null);
+    }
+
+    /**
+     * Passes if actual is within delta of expected. Two NaNs, or two infinities of the same
+     * sign, are equal.
+     */
+    public static void assertEquals(double expected, double actual, double delta, String message) throws LiteAssertFailedException {
+        if(!closeEnough(expected, actual, delta)) {
+            assertMatchFailed(expected, actual, message);
+        }
+    }
+
+    public static void assertEqualsLazy(double expected, double actual, double delta, Supplier<String> message) throws LiteAssertFailedException {
+        if(!closeEnough(expected, actual, delta)) {
+            assertMatchFailed(expected, actual, get(message));
+        }
+    }
+
+    public static void assertEquals(double expected, double actual, double delta) throws LiteAssertFailedException {
+        assertEquals(expected, actual, delta, (String) null);
+    }
+
+    public static void assertEquals(boolean expected, boolean actual, String message) throws LiteAssertFailedException {
+        if(expected != actual) {
+            assertMatchFailed(expected, actual, message);
+        }
+    }
+
+    public static void assertEqualsLazy(boolean expected, boolean actual, Supplier<String> message) throws LiteAssertFailedException {
+        if(expected != actual) {
+            assertMatchFailed(expected, actual, get(message));
+        }
     }
 
+    public static void assertEquals(boolean expected, boolean actual) throws LiteAssertFailedException {
+        assertEquals(expected, actual, (String) null);
+    }
+
+    public static void assertEquals(char expected, char actual, String message) throws LiteAssertFailedException {
+        if(expected != actual) {
+            assertMatchFailed(expected, actual, message);
+        }
+    }
+
+    public static void assertEqualsLazy(char expected, char actual, Supplier<String> message) throws LiteAssertFailedException {
+        if(expected != actual) {
+            assertMatchFailed(expected, actual, get(message));
+        }
+    }
+
+    public static void assertEquals(char expected, char actual) throws LiteAssertFailedException {
+        assertEquals(expected, actual, (String) null);
+    }
+
+    /**
+     * Passes if expected and actual are not equal, the same as the primitive overloads. Two
+     * nulls are equal. Before the primitive overloads were added this assertion failed when the
+     * values differed instead; that was changed on purpose, so that assertNotEquals means the
+     * same thing whatever it is given.
+     */
     public static void assertNotEquals(Object expected, Object actual, String message) throws LiteAssertFailedException {
-        try {
-            if (expected != null || actual != null) {
-                if (expected == null || !expected.equals(actual)) {
-                    assertMatchFailed(expected, actual, message);
-                }
-            }
-        } catch (LiteAssertFailedException e){
+        if(Objects.equals(expected, actual)) {
             assertDifferFailed(expected, actual, message);
         }
+    }
 
+    public static void assertNotEqualsLazy(Object expected, Object actual, Supplier<String> message) throws LiteAssertFailedException {
+        if(Objects.equals(expected, actual)) {
+            assertDifferFailed(expected, actual, get(message));
+        }
     }
 
     public static void assertNotEquals(Object expected, Object actual) throws LiteAssertFailedException {
-        assertNotEquals(expected, actual, null);
+        assertNotEquals(expected, actual, (String) null);
+    }
+
+    public static void assertNotEquals(int expected, int actual, String message) throws LiteAssertFailedException {
+        if(expected == actual) {
+            assertDifferFailed(expected, actual, message);
+        }
+    }
+
+    public static void assertNotEqualsLazy(int expected, int actual, Supplier<String> message) throws LiteAssertFailedException {
+        if(expected == actual) {
+            assertDifferFailed(expected, actual, get(message));
+        }
+    }
+
+    public static void assertNotEquals(int expected, int actual) throws LiteAssertFailedException {
+        assertNotEquals(expected, actual, (String) null);
+    }
+
+    public static void assertNotEquals(long expected, long actual, String message) throws LiteAssertFailedException {
+        if(expected == actual) {
+            assertDifferFailed(expected, actual, message);
+        }
+    }
+
+    public static void assertNotEqualsLazy(long expected, long actual, Supplier<String> message) throws LiteAssertFailedException {
+        if(expected == actual) {
+            assertDifferFailed(expected, actual, get(message));
+        }
+    }
+
+    public static void assertNotEquals(long expected, long actual) throws LiteAssertFailedException {
+        assertNotEquals(expected, actual, (String) null);
     }
 
     public static void assertNotNull(Object object) throws LiteAssertFailedException {
-        assertNotNull(object, null);
+        assertNotNull(object, (String) null);
     }
 
     public static void assertNotNull(Object object, String message) throws LiteAssertFailedException {
         assertTrue(object != null, message);
     }
 
+    public static void assertNotNullLazy(Object object, Supplier<String> message) throws LiteAssertFailedException {
+        assertTrueLazy(object != null, message);
+    }
+
     public static void assertNull(Object object) throws LiteAssertFailedException {
         if(object != null) {
             assertNull(object, "Expected: <null> but was: " + object.toString());
@@ -68,7 +244,255 @@ public class LiteAsserts {
         assertTrue(object == null, message);
     }
 
+    public static void assertNullLazy(Object object, Supplier<String> message) throws LiteAssertFailedException {
+        assertTrueLazy(object == null, message);
+    }
+
+    /**
+     * Passes if min &lt;= actual &lt;= max.
+     */
+    public static void assertInRange(int actual, int min, int max, String message) throws LiteAssertFailedException {
+        if(actual < min || actual > max) {
+            assertRangeFailed(actual, min, max, message);
+        }
+    }
+
+    public static void assertInRangeLazy(int actual, int min, int max, Supplier<String> message) throws LiteAssertFailedException {
+        if(actual < min || actual > max) {
+            assertRangeFailed(actual, min, max, get(message));
+        }
+    }
+
+    public static void assertInRange(int actual, int min, int max) throws LiteAssertFailedException {
+        assertInRange(actual, min, max, (String) null);
+    }
 
+    public static void assertInRange(long actual, long min, long max, String message) throws LiteAssertFailedException {
+        if(actual < min || actual > max) {
+            assertRangeFailed(actual, min, max, message);
+        }
+    }
+
+    public static void assertInRangeLazy(long actual, long min, long max, Supplier<String> message) throws LiteAssertFailedException {
+        if(actual < min || actual > max) {
+            assertRangeFailed(actual, min, max, get(message));
+        }
+    }
+
+    public static void assertInRange(long actual, long min, long max) throws LiteAssertFailedException {
+        assertInRange(actual, min, max, (String) null);
+    }
+
+    /**
+     * Passes if min &lt;= actual &lt;= max. NaN is never in range.
+     */
+    public static void assertInRange(double actual, double min, double max, String message) throws LiteAssertFailedException {
+        if(!(actual >= min && actual <= max)) {
+            assertRangeFailed(actual, min, max, message);
+        }
+    }
+
+    public static void assertInRangeLazy(double actual, double min, double max, Supplier<String> message) throws LiteAssertFailedException {
+        if(!(actual >= min && actual <= max)) {
+            assertRangeFailed(actual, min, max, get(message));
+        }
+    }
+
+    public static void assertInRange(double actual, double min, double max) throws LiteAssertFailedException {
+        assertInRange(actual, min, max, (String) null);
+    }
+
+    /**
+     * Passes if both arrays are null, or have the same length and equal elements. A failure
+     * reports the first index at which they differ, a few elements either side of it, and the
+     * lengths of the arrays if they differ. The same goes for the other array assertions.
+     */
+    public static void assertArrayEquals(int[] expected, int[] actual, String message) throws LiteAssertFailedException {
+        int index = mismatch(expected, actual);
+        if(index >= 0)
+            assertArraysFailed(expected, actual, index, message);
+    }
+
+    public static void assertArrayEqualsLazy(int[] expected, int[] actual, Supplier<String> message) throws LiteAssertFailedException {
+        int index = mismatch(expected, actual);
+        if(index >= 0)
+            assertArraysFailed(expected, actual, index, get(message));
+    }
+
+    public static void assertArrayEquals(int[] expected, int[] actual) throws LiteAssertFailedException {
+        assertArrayEquals(expected, actual, (String) null);
+    }
+
+    public static void assertArrayEquals(long[] expected, long[] actual, String message) throws LiteAssertFailedException {
+        int index = mismatch(expected, actual);
+        if(index >= 0)
+            assertArraysFailed(expected, actual, index, message);
+    }
+
+    public static void assertArrayEqualsLazy(long[] expected, long[] actual, Supplier<String> message) throws LiteAssertFailedException {
+        int index = mismatch(expected, actual);
+        if(index >= 0)
+            assertArraysFailed(expected, actual, index, get(message));
+    }
+
+    public static void assertArrayEquals(long[] expected, long[] actual) throws LiteAssertFailedException {
+        assertArrayEquals(expected, actual, (String) null);
+    }
+
+    /**
+     * Passes if both arrays are null, or have the same length and each element of actual is
+     * within delta of the matching element of expected.
+     */
+    public static void assertArrayEquals(double[] expected, double[] actual, double delta, String message) throws LiteAssertFailedException {
+        int index = mismatch(expected, actual, delta);
+        if(index >= 0)
+            assertArraysFailed(expected, actual, index, message);
+    }
+
+    public static void assertArrayEqualsLazy(double[] expected, double[] actual, double delta, Supplier<String> message) throws LiteAssertFailedException {
+        int index = mismatch(expected, actual, delta);
+        if(index >= 0)
+            assertArraysFailed(expected, actual, index, get(message));
+    }
+
+    public static void assertArrayEquals(double[] expected, double[] actual, double delta) throws LiteAssertFailedException {
+        assertArrayEquals(expected, actual, delta, (String) null);
+    }
+
+    public static void assertArrayEquals(byte[] expected, byte[] actual, String message) throws LiteAssertFailedException {
+        int index = mismatch(expected, actual);
+        if(index >= 0)
+            assertArraysFailed(expected, actual, index, message);
+    }
+
+    public static void assertArrayEqualsLazy(byte[] expected, byte[] actual, Supplier<String> message) throws LiteAssertFailedException {
+        int index = mismatch(expected, actual);
+        if(index >= 0)
+            assertArraysFailed(expected, actual, index, get(message));
+    }
+
+    public static void assertArrayEquals(byte[] expected, byte[] actual) throws LiteAssertFailedException {
+        assertArrayEquals(expected, actual, (String) null);
+    }
+
+    public static void assertArrayEquals(char[] expected, char[] actual, String message) throws LiteAssertFailedException {
+        int index = mismatch(expected, actual);
+        if(index >= 0)
+            assertArraysFailed(expected, actual, index, message);
+    }
+
+    public static void assertArrayEqualsLazy(char[] expected, char[] actual, Supplier<String> message) throws LiteAssertFailedException {
+        int index = mismatch(expected, actual);
+        if(index >= 0)
+            assertArraysFailed(expected, actual, index, get(message));
+    }
+
+    public static void assertArrayEquals(char[] expected, char[] actual) throws LiteAssertFailedException {
+        assertArrayEquals(expected, actual, (String) null);
+    }
+
+    public static void assertArrayEquals(boolean[] expected, boolean[] actual, String message) throws LiteAssertFailedException {
+        int index = mismatch(expected, actual);
+        if(index >= 0)
+            assertArraysFailed(expected, actual, index, message);
+    }
+
+    public static void assertArrayEqualsLazy(boolean[] expected, boolean[] actual, Supplier<String> message) throws LiteAssertFailedException {
+        int index = mismatch(expected, actual);
+        if(index >= 0)
+            assertArraysFailed(expected, actual, index, get(message));
+    }
+
+    public static void assertArrayEquals(boolean[] expected, boolean[] actual) throws LiteAssertFailedException {
+        assertArrayEquals(expected, actual, (String) null);
+    }
+
+    /**
+     * Passes if both arrays are null, or have the same length and equal elements. Elements that
+     * are arrays themselves are compared by their contents.
+     */
+    public static void assertArrayEquals(Object[] expected, Object[] actual, String message) throws LiteAssertFailedException {
+        int index = mismatch(expected, actual);
+        if(index >= 0)
+            assertArraysFailed(expected, actual, index, message);
+    }
+
+    public static void assertArrayEqualsLazy(Object[] expected, Object[] actual, Supplier<String> message) throws LiteAssertFailedException {
+        int index = mismatch(expected, actual);
+        if(index >= 0)
+            assertArraysFailed(expected, actual, index, get(message));
+    }
+
+    public static void assertArrayEquals(Object[] expected, Object[] actual) throws LiteAssertFailedException {
+        assertArrayEquals(expected, actual, (String) null);
+    }
+
+    /**
+     * Passes if both iterables are null, or hold equal elements in the same order. They are walked
+     * together and the comparison stops at the first difference, so they may be of any size, and
+     * the failure reports that difference the same way as assertArrayEquals() does.
+     */
+    public static void assertIterableEquals(Iterable<?> expected, Iterable<?> actual, String message) throws LiteAssertFailedException {
+        String difference = LiteDiff.ofIterables(expected, actual);
+        if(difference != null) {
+            assertFailed(difference + formatted(message));
+        }
+    }
+
+    public static void assertIterableEqualsLazy(Iterable<?> expected, Iterable<?> actual, Supplier<String> message) throws LiteAssertFailedException {
+        String difference = LiteDiff.ofIterables(expected, actual);
+        if(difference != null) {
+            assertFailed(difference + formatted(get(message)));
+        }
+    }
+
+    public static void assertIterableEquals(Iterable<?> expected, Iterable<?> actual) throws LiteAssertFailedException {
+        assertIterableEquals(expected, actual, (String) null);
+    }
+
+    /**
+     * Passes if both collections hold the same elements, ignoring order and duplicates. A failure
+     * reports how many elements are missing and extra, with a few examples of each.
+     */
+    public static void assertSetEquals(Collection<?> expected, Collection<?> actual, String message) throws LiteAssertFailedException {
+        String difference = LiteDiff.ofSets(expected, actual);
+        if(difference != null) {
+            assertFailed(difference + formatted(message));
+        }
+    }
+
+    public static void assertSetEqualsLazy(Collection<?> expected, Collection<?> actual, Supplier<String> message) throws LiteAssertFailedException {
+        String difference = LiteDiff.ofSets(expected, actual);
+        if(difference != null) {
+            assertFailed(difference + formatted(get(message)));
+        }
+    }
+
+    public static void assertSetEquals(Collection<?> expected, Collection<?> actual) throws LiteAssertFailedException {
+        assertSetEquals(expected, actual, (String) null);
+    }
+
+    /**
+     * Passes if both maps map the same keys to equal values. A failure reports how many keys are
+     * missing and extra and how many values changed, with a few examples of each.
+     */
+    public static void assertMapEquals(Map<?, ?> expected, Map<?, ?> actual, String message) throws LiteAssertFailedException {
+        String difference = LiteDiff.ofMaps(expected, actual);
+        if(difference != null) {
+            assertFailed(difference + formatted(message));
+        }
+    }
+
+    public static void assertMapEqualsLazy(Map<?, ?> expected, Map<?, ?> actual, Supplier<String> message) throws LiteAssertFailedException {
+        String difference = LiteDiff.ofMaps(expected, actual);
+        if(difference != null) {
+            assertFailed(difference + formatted(get(message)));
+        }
+    }
+
+    public static void assertMapEquals(Map<?, ?> expected, Map<?, ?> actual) throws LiteAssertFailedException {
+        assertMapEquals(expected, actual, (String) null);
+    }
 
     private static void assertMatchFailed(Object expected, Object actual, String message) throws LiteAssertFailedException {
         assertFailed(shouldMatchMessage(expected, actual, message));
@@ -78,6 +502,124 @@ public class LiteAsserts {
         assertFailed(shouldDifferMessage(expected, actual, message));
     }
 
+    private static void assertRangeFailed(Object actual, Object min, Object max, String message) throws LiteAssertFailedException {
+        assertFailed("expected:<" + actual + "> to be within [" + min + ", " + max + "]" + formatted(message));
+    }
+
+    private static void assertArraysFailed(Object expected, Object actual, int index, String message) throws LiteAssertFailedException {
+        assertFailed(LiteDiff.ofArrays(expected, actual, index) + formatted(message));
+    }
+
+    /**
+     * The first index at which the arrays differ, or -1 if they don't. An index past the end of
+     * the shorter array means one is a prefix of the other, and 0 that only one of them is null.
+     */
+    private static int mismatch(int[] expected, int[] actual) {
+        if(expected == actual)
+            return -1;
+        if(expected == null || actual == null)
+            return 0;
+        int length = Math.min(expected.length, actual.length);
+        for(int i = 0; i < length; i++) {
+            if(expected[i] != actual[i])
+                return i;
+        }
+        return expected.length == actual.length ? -1 : length;
+    }
+
+    private static int mismatch(long[] expected, long[] actual) {
+        if(expected == actual)
+            return -1;
+        if(expected == null || actual == null)
+            return 0;
+        int length = Math.min(expected.length, actual.length);
+        for(int i = 0; i < length; i++) {
+            if(expected[i] != actual[i])
+                return i;
+        }
+        return expected.length == actual.length ? -1 : length;
+    }
+
+    private static int mismatch(byte[] expected, byte[] actual) {
+        if(expected == actual)
+            return -1;
+        if(expected == null || actual == null)
+            return 0;
+        int length = Math.min(expected.length, actual.length);
+        for(int i = 0; i < length; i++) {
+            if(expected[i] != actual[i])
+                return i;
+        }
+        return expected.length == actual.length ? -1 : length;
+    }
+
+    private static int mismatch(char[] expected, char[] actual) {
+        if(expected == actual)
+            return -1;
+        if(expected == null || actual == null)
+            return 0;
+        int length = Math.min(expected.length, actual.length);
+        for(int i = 0; i < length; i++) {
+            if(expected[i] != actual[i])
+                return i;
+        }
+        return expected.length == actual.length ? -1 : length;
+    }
+
+    private static int mismatch(boolean[] expected, boolean[] actual) {
+        if(expected == actual)
+            return -1;
+        if(expected == null || actual == null)
+            return 0;
+        int length = Math.min(expected.length, actual.length);
+        for(int i = 0; i < length; i++) {
+            if(expected[i] != actual[i])
+                return i;
+        }
+        return expected.length == actual.length ? -1 : length;
+    }
+
+    private static int mismatch(double[] expected, double[] actual, double delta) {
+        if(expected == actual)
+            return -1;
+        if(expected == null || actual == null)
+            return 0;
+        int length = Math.min(expected.length, actual.length);
+        for(int i = 0; i < length; i++) {
+            if(!closeEnough(expected[i], actual[i], delta))
+                return i;
+        }
+        return expected.length == actual.length ? -1 : length;
+    }
+
+    private static int mismatch(Object[] expected, Object[] actual) {
+        if(expected == actual)
+            return -1;
+        if(expected == null || actual == null)
+            return 0;
+        int length = Math.min(expected.length, actual.length);
+        for(int i = 0; i < length; i++) {
+            if(!Objects.deepEquals(expected[i], actual[i]))
+                return i;
+        }
+        return expected.length == actual.length ? -1 : length;
+    }
+
+    private static boolean closeEnough(double expected, double actual, double delta) {
+        return Double.compare(expected, actual) == 0 || Math.abs(expected - actual) <= delta;
+    }
+
+    private static String get(Supplier<String> message) {
+        return message == null ? null : message.get();
+    }
+
+    private static String formatted(String message) {
+        if(message != null && message.length() > 0) {
+            return "\n" + message;
+        }
+        return "";
+    }
+
     private static void assertFailed(String message) throws LiteAssertFailedException {
         if(message == null) {
             throw new LiteAssertFailedException();
@@ -0,0 +1,307 @@
+package asserts;
+
+import java.lang.reflect.Array;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Compares arrays, iterables, sets and maps for LiteAsserts, and describes how they differ.
+ * A description never grows with the size of what was compared: it shows the first difference
+ * with a few elements of context on either side, counts of what is missing or extra, and at most
+ * a handful of examples, each cut short if its toString() is long.
+ */
+final class LiteDiff {
+
+    private static final int CONTEXT = 3;
+    private static final int EXAMPLES = 5;
+    private static final int MAX_ELEMENT_TEXT = 40;
+
+    private LiteDiff() {}
+
+    /**
+     * Describes two arrays of any type that first differ at index, which is the length of the
+     * shorter one if it is a prefix of the other.
+     */
+    static String ofArrays(Object expected, Object actual, int index) {
+        if(expected == null || actual == null)
+            return "expected array:<" + (expected == null ? "null" : "length " + Array.getLength(expected)) +
+                    "> but was:<" + (actual == null ? "null" : "length " + Array.getLength(actual)) + ">";
+        int expectedLength = Array.getLength(expected);
+        int actualLength = Array.getLength(actual);
+
+        StringBuilder builder = new StringBuilder();
+        appendFirstDifference("arrays", index, index < expectedLength ? Array.get(expected, index) : null, index < expectedLength,
+                index < actualLength ? Array.get(actual, index) : null, index < actualLength, builder);
+        builder.append("\nexpected: ");
+        appendArrayWindow(expected, index, builder);
+        builder.append("\nactual:   ");
+        appendArrayWindow(actual, index, builder);
+        appendLengths(expectedLength, actualLength, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Walks both iterables together and describes the first difference, or returns null if they
+     * hold equal elements in the same order. Only the last few elements are remembered on the
+     * way, for context. After a difference the rest of both is walked to count them.
+     */
+    static String ofIterables(Iterable<?> expected, Iterable<?> actual) {
+        if(expected == actual)
+            return null;
+        if(expected == null || actual == null)
+            return "expected:<" + (expected == null ? "null" : "an iterable") + "> but was:<" + (actual == null ? "null" : "an iterable") + ">";
+
+        Iterator<?> expectedElements = expected.iterator();
+        Iterator<?> actualElements = actual.iterator();
+        Deque<Object> before = new ArrayDeque<>(CONTEXT);
+        int index = 0;
+        while(expectedElements.hasNext() && actualElements.hasNext()) {
+            Object expectedElement = expectedElements.next();
+            Object actualElement = actualElements.next();
+            if(!Objects.deepEquals(expectedElement, actualElement))
+                return describeIterables(before, index, expectedElement, true, actualElement, true, expectedElements, actualElements);
+            if(before.size() == CONTEXT)
+                before.removeFirst();
+            before.addLast(expectedElement);
+            index++;
+        }
+        if(!expectedElements.hasNext() && !actualElements.hasNext())
+            return null;
+        boolean hasExpected = expectedElements.hasNext();
+        boolean hasActual = actualElements.hasNext();
+        return describeIterables(before, index, hasExpected ? expectedElements.next() : null, hasExpected,
+                hasActual ? actualElements.next() : null, hasActual, expectedElements, actualElements);
+    }
+
+    /**
+     * Compares two collections as sets, ignoring order and duplicates. Returns null if they hold
+     * the same elements, otherwise the number of missing and extra elements with a few of each.
+     */
+    static String ofSets(Collection<?> expected, Collection<?> actual) {
+        if(expected == actual)
+            return null;
+        if(expected == null || actual == null)
+            return "expected:<" + (expected == null ? "null" : "a collection") + "> but was:<" + (actual == null ? "null" : "a collection") + ">";
+
+        Set<?> expectedSet = expected instanceof Set ? (Set<?>) expected : new HashSet<>(expected);
+        Set<?> actualSet = actual instanceof Set ? (Set<?>) actual : new HashSet<>(actual);
+        if(expectedSet.size() == actualSet.size() && expectedSet.containsAll(actualSet))
+            return null;
+
+        int missing = 0;
+        List<String> missingExamples = new ArrayList<>(EXAMPLES);
+        for(Object element : expectedSet) {
+            if(!actualSet.contains(element)) {
+                if(missing++ < EXAMPLES)
+                    missingExamples.add(text(element));
+            }
+        }
+        int extra = 0;
+        List<String> extraExamples = new ArrayList<>(EXAMPLES);
+        for(Object element : actualSet) {
+            if(!expectedSet.contains(element)) {
+                if(extra++ < EXAMPLES)
+                    extraExamples.add(text(element));
+            }
+        }
+
+        StringBuilder builder = new StringBuilder();
+        builder.append("sets differed; expected ").append(expectedSet.size()).append(" elements but was ").append(actualSet.size());
+        appendExamples("missing", missing, missingExamples, builder);
+        appendExamples("extra", extra, extraExamples, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Compares two maps by their entries. Returns null if they map the same keys to equal values,
+     * otherwise the number of missing keys, extra keys and changed values, with a few of each.
+     */
+    static String ofMaps(Map<?, ?> expected, Map<?, ?> actual) {
+        if(expected == actual)
+            return null;
+        if(expected == null || actual == null)
+            return "expected:<" + (expected == null ? "null" : "a map") + "> but was:<" + (actual == null ? "null" : "a map") + ">";
+        if(expected.size() == actual.size() && entriesMatch(expected, actual))
+            return null;
+
+        int missing = 0;
+        int changed = 0;
+        List<String> missingExamples = new ArrayList<>(EXAMPLES);
+        List<String> changedExamples = new ArrayList<>(EXAMPLES);
+        for(Map.Entry<?, ?> entry : expected.entrySet()) {
+            Object key = entry.getKey();
+            Object value = actual.get(key);
+            if(value == null && !actual.containsKey(key)) {
+                if(missing++ < EXAMPLES)
+                    missingExamples.add(text(key));
+            }
+            else if(!Objects.deepEquals(entry.getValue(), value)) {
+                if(changed++ < EXAMPLES)
+                    changedExamples.add(text(key) + "=<" + text(entry.getValue()) + "> but was:<" + text(value) + ">");
+            }
+        }
+        int extra = 0;
+        List<String> extraExamples = new ArrayList<>(EXAMPLES);
+        for(Object key : actual.keySet()) {
+            if(!expected.containsKey(key)) {
+                if(extra++ < EXAMPLES)
+                    extraExamples.add(text(key));
+            }
+        }
+
+        StringBuilder builder = new StringBuilder();
+        builder.append("maps differed; expected ").append(expected.size()).append(" entries but was ").append(actual.size());
+        appendExamples("missing keys", missing, missingExamples, builder);
+        appendExamples("extra keys", extra, extraExamples, builder);
+        appendExamples("changed values", changed, changedExamples, builder);
+        return builder.toString();
+    }
+
+    private static boolean entriesMatch(Map<?, ?> expected, Map<?, ?> actual) {
+        for(Map.Entry<?, ?> entry : expected.entrySet()) {
+            Object value = actual.get(entry.getKey());
+            if(!Objects.deepEquals(entry.getValue(), value) || (value == null && !actual.containsKey(entry.getKey())))
+                return false;
+        }
+        return true;
+    }
+
+    private static String describeIterables(Deque<Object> before, int index, Object expectedElement, boolean hasExpected,
+                                            Object actualElement, boolean hasActual,
+                                            Iterator<?> expectedElements, Iterator<?> actualElements) {
+        StringBuilder builder = new StringBuilder();
+        appendFirstDifference("iterables", index, expectedElement, hasExpected, actualElement, hasActual, builder);
+
+        int expectedCount = index;
+        int actualCount = index;
+        builder.append("\nexpected: ");
+        expectedCount += appendIteratorWindow(before, index, expectedElement, hasExpected, expectedElements, builder);
+        builder.append("\nactual:   ");
+        actualCount += appendIteratorWindow(before, index, actualElement, hasActual, actualElements, builder);
+        appendLengths(expectedCount, actualCount, builder);
+        return builder.toString();
+    }
+
+    private static void appendFirstDifference(String what, int index, Object expectedElement, boolean hasExpected,
+                                              Object actualElement, boolean hasActual, StringBuilder builder) {
+        builder.append(what).append(" first differed at element [").append(index).append("]; ");
+        if(!hasExpected)
+            builder.append("expected no more elements but was:<").append(text(actualElement)).append(">");
+        else if(!hasActual)
+            builder.append("expected:<").append(text(expectedElement)).append("> but there were no more elements");
+        else
+            builder.append("expected:<").append(text(expectedElement)).append("> but was:<").append(text(actualElement)).append(">");
+    }
+
+    private static void appendArrayWindow(Object array, int index, StringBuilder builder) {
+        int length = Array.getLength(array);
+        int from = Math.max(0, index - CONTEXT);
+        int to = Math.min(length, index + CONTEXT + 1);
+        builder.append(from > 0 ? "[..., " : "[");
+        for(int i = from; i < to; i++) {
+            if(i > from)
+                builder.append(", ");
+            appendElement(Array.get(array, i), i == index, builder);
+        }
+        builder.append(to < length ? ", ...]" : "]");
+    }
+
+    /**
+     * Appends the window around the first difference of one side, reading a few elements ahead,
+     * and then counts what is left of the side.
+     * @return The number of elements from the first difference on.
+     */
+    private static int appendIteratorWindow(Deque<Object> before, int index, Object element, boolean hasElement,
+                                            Iterator<?> rest, StringBuilder builder) {
+        builder.append(index > before.size() ? "[..., " : "[");
+        boolean first = true;
+        for(Object previous : before) {
+            if(!first)
+                builder.append(", ");
+            appendElement(previous, false, builder);
+            first = false;
+        }
+        if(!hasElement) {
+            builder.append("]");
+            return 0;
+        }
+        if(!first)
+            builder.append(", ");
+        appendElement(element, true, builder);
+        int counted = 1;
+        while(rest.hasNext() && counted <= CONTEXT) {
+            builder.append(", ");
+            appendElement(rest.next(), false, builder);
+            counted++;
+        }
+        builder.append(rest.hasNext() ? ", ...]" : "]");
+        while(rest.hasNext()) {
+            rest.next();
+            counted++;
+        }
+        return counted;
+    }
+
+    private static void appendElement(Object element, boolean marked, StringBuilder builder) {
+        if(marked)
+            builder.append(">>");
+        builder.append(text(element));
+        if(marked)
+            builder.append("<<");
+    }
+
+    private static void appendLengths(int expectedLength, int actualLength, StringBuilder builder) {
+        if(expectedLength == actualLength)
+            return;
+        builder.append("\nexpected ").append(expectedLength).append(" elements but was ").append(actualLength);
+        if(actualLength > expectedLength)
+            builder.append(" (").append(actualLength - expectedLength).append(" extra)");
+        else
+            builder.append(" (").append(expectedLength - actualLength).append(" missing)");
+    }
+
+    private static void appendExamples(String what, int count, List<String> examples, StringBuilder builder) {
+        if(count == 0)
+            return;
+        builder.append("\n").append(count).append(" ").append(what).append(": [");
+        for(int i = 0; i < examples.size(); i++) {
+            if(i > 0)
+                builder.append(", ");
+            builder.append(examples.get(i));
+        }
+        builder.append(count > examples.size() ? ", ...]" : "]");
+    }
+
+    /**
+     * The element's text, cut short if it is long. Arrays are shown by their contents.
+     */
+    static String text(Object element) {
+        String text;
+        if(element != null && element.getClass().isArray())
+            text = arrayText(element);
+        else
+            text = String.valueOf(element);
+        if(text.length() > MAX_ELEMENT_TEXT)
+            text = text.substring(0, MAX_ELEMENT_TEXT - 3) + "...";
+        return text;
+    }
+
+    private static String arrayText(Object array) {
+        StringBuilder builder = new StringBuilder("[");
+        int length = Math.min(Array.getLength(array), MAX_ELEMENT_TEXT);
+        for(int i = 0; i < length; i++) {
+            if(i > 0)
+                builder.append(", ");
+            builder.append(Array.get(array, i));
+        }
+        return builder.append(Array.getLength(array) > length ? ", ...]" : "]").toString();
+    }
+}
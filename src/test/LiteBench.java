@@ -0,0 +1,104 @@
+package test;
+
+import asserts.LiteAssertFailedException;
+import test.annotations.LiteBenchmark;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Runs a @LiteBenchmark method and keeps its statistics. Every iteration is timed as a
+ * whole and divided by the batch size, and the percentiles are taken over those per-call
+ * times. Allocation is measured with the per-thread allocation counter, when the JVM has one,
+ * see LiteProbe.allocatedBytes().
+ */
+class LiteBench {
+
+    int warmupIterations;
+    int iterations;
+    int batchSize;
+    LiteBlackhole blackhole = new LiteBlackhole();
+
+    double opsPerSecond;
+    double mean;            // nanoseconds per call
+    double p50;
+    double p99;
+    double bytesPerOp = -1;
+
+    double baseline;        // mean from a saved baseline, 0 if there isn't one
+    double tolerance;
+
+    LiteBench(LiteBenchmark annotation) {
+        warmupIterations = annotation.warmupIterations();
+        iterations = Math.max(1, annotation.iterations());
+        batchSize = Math.max(1, annotation.batchSize());
+    }
+
+    /**
+     * Runs the benchmark and returns whatever it threw, or an assert failure if it was slower
+     * than its baseline allows. Returns null otherwise.
+     */
+    Throwable run(MethodHandle invoker, Object instance) {
+        double[] nanosPerOp = new double[iterations];
+        long totalNanos = 0;
+        long allocatedBefore;
+        long allocatedAfter;
+        try {
+            for(int i = 0; i < warmupIterations; i++)
+                runBatch(invoker, instance);
+
+            allocatedBefore = LiteProbe.allocatedBytes();
+            for(int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                runBatch(invoker, instance);
+                long elapsed = System.nanoTime() - start;
+                nanosPerOp[i] = elapsed / (double) batchSize;
+                totalNanos += elapsed;
+            }
+            allocatedAfter = LiteProbe.allocatedBytes();
+        } catch (Throwable e) {
+            return e;
+        }
+        blackhole.publish();
+
+        long calls = (long) iterations * batchSize;
+        mean = totalNanos / (double) calls;
+        opsPerSecond = totalNanos == 0 ? 0 : calls * 1000000000.0 / totalNanos;
+        Arrays.sort(nanosPerOp);
+        p50 = percentile(nanosPerOp, 0.50);
+        p99 = percentile(nanosPerOp, 0.99);
+        if(allocatedBefore >= 0 && allocatedAfter >= 0)
+            bytesPerOp = (allocatedAfter - allocatedBefore) / (double) calls;
+
+        if(isRegression())
+            return new LiteAssertFailedException(String.format(Locale.ROOT,
+                    "mean of %.2f ns/op is %.1f%% slower than the baseline of %.2f ns/op",
+                    mean, (mean / baseline - 1) * 100, baseline));
+        return null;
+    }
+
+    boolean isRegression() {
+        return baseline > 0 && mean > baseline * (1 + tolerance);
+    }
+
+    String getSummary() {
+        String summary = String.format(Locale.ROOT, "%,.0f ops/s  mean %.2f ns/op  p50 %.2f  p99 %.2f",
+                opsPerSecond, mean, p50, p99);
+        if(bytesPerOp >= 0)
+            summary += String.format(Locale.ROOT, "  %.1f B/op", bytesPerOp);
+        if(baseline > 0)
+            summary += String.format(Locale.ROOT, "  (%+.1f%% vs baseline)", (mean / baseline - 1) * 100);
+        return summary;
+    }
+
+    private void runBatch(MethodHandle invoker, Object instance) throws Throwable {
+        for(int i = 0; i < batchSize; i++)
+            invoker.invokeExact(instance);
+    }
+
+    private static double percentile(double[] sorted, double fraction) {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
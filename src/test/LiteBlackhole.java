@@ -0,0 +1,45 @@
+package test;
+
+/**
+ * Passed to @LiteBenchmark methods that take one, so they can hand over the values they
+ * compute. Consumed values are folded into fields the JIT can't prove are unused, which
+ * keeps it from eliminating the code being measured.
+ */
+public final class LiteBlackhole {
+
+    private int intSink;
+    private long longSink;
+    private double doubleSink;
+    private Object objectSink;
+    private volatile long published;
+
+    LiteBlackhole() {}
+
+    public void consume(Object value) {
+        objectSink = value;
+    }
+
+    public void consume(int value) {
+        intSink ^= value;
+    }
+
+    public void consume(long value) {
+        longSink ^= value;
+    }
+
+    public void consume(double value) {
+        doubleSink += value;
+    }
+
+    public void consume(boolean value) {
+        intSink ^= value ? 1 : 0;
+    }
+
+    /**
+     * Makes everything consumed so far visible, so none of it is dead.
+     */
+    void publish() {
+        published = intSink ^ longSink ^ Double.doubleToRawLongBits(doubleSink) ^ System.identityHashCode(objectSink);
+        objectSink = null;
+    }
+}
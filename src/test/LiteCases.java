@@ -0,0 +1,381 @@
+package test;
+
+import test.annotations.LiteParameters;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.BaseStream;
+
+/**
+ * The cases of one run of a parameterized test, read lazily from the source named by its
+ * LiteParameters annotation. Any number of threads may take cases from it at once; reading
+ * the source is done under the lock, running the cases isn't. Only counts and the first
+ * failure are kept, so memory doesn't grow with the number of cases.
+ */
+class LiteCases implements Closeable {
+
+    private static final int MAX_ARGUMENTS_TEXT = 100;
+
+    /**
+     * One case taken from the source.
+     */
+    static class Case {
+        final int index;
+        final Object[] arguments;
+        final RuntimeException readError;     // set instead of the arguments if the case couldn't be read
+
+        private Case(int index, Object[] arguments, RuntimeException readError) {
+            this.index = index;
+            this.arguments = arguments;
+            this.readError = readError;
+        }
+
+        String getArgumentsText() {
+            if(arguments == null)
+                return "(unreadable)";
+            String text = Arrays.deepToString(arguments);
+            if(text.length() > MAX_ARGUMENTS_TEXT)
+                text = text.substring(0, MAX_ARGUMENTS_TEXT - 3) + "...";
+            return text;
+        }
+    }
+
+    private Iterator<?> source;
+    private Closeable resource;
+    private volatile boolean aborted = false;
+    private Class<?>[] types;
+    private int nextIndex = 0;
+
+    int count = 0;
+    int failed = 0;
+    long duration = 0;      // nanoseconds, summed over the cases
+    LiteProbe probe = new LiteProbe();      // summed over the cases
+    Throwable firstError;
+    String firstFailure;
+
+    private LiteCases(Iterator<?> source, Closeable resource, Class<?>[] types) {
+        this.source = source;
+        this.resource = resource;
+        this.types = types;
+    }
+
+    /**
+     * Opens the source of the test method's cases.
+     * @throws Exception if the provider can't be called or the file can't be opened.
+     */
+    static LiteCases open(Class<?> testClass, Method testMethod) throws Exception {
+        LiteParameters parameters = testMethod.getAnnotation(LiteParameters.class);
+        Class<?>[] types = testMethod.getParameterTypes();
+
+        if(!parameters.provider().equals("")) {
+            Method provider = testClass.getMethod(parameters.provider());
+            if(!Modifier.isStatic(provider.getModifiers()))
+                throw new IllegalStateException("Provider " + parameters.provider() + " must be static");
+            Object provided = provider.invoke(null);
+            if(provided instanceof Iterable)
+                return new LiteCases(((Iterable<?>) provided).iterator(), null, types);
+            if(provided instanceof Iterator)
+                return new LiteCases((Iterator<?>) provided, null, types);
+            if(provided instanceof BaseStream) {
+                final BaseStream<?, ?> stream = (BaseStream<?, ?>) provided;
+                return new LiteCases(stream.iterator(), new Closeable() {
+                    @Override
+                    public void close() {
+                        stream.close();
+                    }
+                }, types);
+            }
+            if(provided instanceof Object[])
+                return new LiteCases(Arrays.asList((Object[]) provided).iterator(), null, types);
+            throw new IllegalStateException("Provider " + parameters.provider() + " returned " +
+                    (provided == null ? "null" : provided.getClass().getName()));
+        }
+
+        if(parameters.file().equals(""))
+            throw new IllegalStateException("@LiteParameters needs a provider or a file");
+        Path file = Paths.get(System.getProperty("user.dir")).resolve(parameters.file());
+        if(parameters.file().endsWith(".csv")) {
+            BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+            return new LiteCases(new CsvRows(reader, types), reader, types);
+        }
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+        return new LiteCases(new BinaryRecords(in, types), in, types);
+    }
+
+    /**
+     * Takes the next case, or returns null once the source is used up. A case that can't be
+     * converted to the parameter types is still returned, with the error in place of its
+     * arguments, so that only that case fails.
+     * @throws RuntimeException if the source itself fails.
+     */
+    synchronized Case next() {
+        if(aborted || !source.hasNext())
+            return null;
+        Object element;
+        try {
+            element = source.next();
+        } catch (IllegalArgumentException e) {
+            return new Case(nextIndex++, null, e);
+        }
+        Object[] arguments;
+        if(element instanceof Object[] && !(types.length == 1 && types[0].isInstance(element)))
+            arguments = (Object[]) element;
+        else
+            arguments = new Object[] {element};
+        return new Case(nextIndex++, arguments, null);
+    }
+
+    synchronized void record(Case finished, long caseDuration, Throwable error, LiteProbe caseProbe) {
+        count++;
+        duration += caseDuration;
+        probe.add(caseProbe);
+        if(error == null)
+            return;
+        failed++;
+        if(firstError == null) {
+            firstError = error;
+            firstFailure = "[" + finished.index + "] " + finished.getArgumentsText();
+        }
+    }
+
+    /**
+     * Records an error that isn't the fault of any one case, such as the source failing or the
+     * test class failing to set up, and stops handing out cases.
+     * @param during What was being done when the error happened, for the report.
+     */
+    synchronized void abort(Throwable error, String during) {
+        aborted = true;
+        failed++;
+        if(firstError == null) {
+            firstError = error;
+            firstFailure = during;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        source = null;
+        if(resource != null)
+            resource.close();
+    }
+
+    /**
+     * The constant of the enum type with the given name, like Enum.valueOf().
+     */
+    static Object enumConstant(Class<?> type, String name) {
+        for(Object constant : type.getEnumConstants()) {
+            if(((Enum<?>) constant).name().equals(name))
+                return constant;
+        }
+        throw new IllegalArgumentException("No enum constant " + type.getName() + "." + name);
+    }
+
+    /**
+     * Converts one CSV field to the type of the parameter it is for.
+     */
+    static Object convert(String text, Class<?> type) {
+        if(type == String.class || type == Object.class || type == CharSequence.class)
+            return text;
+        text = text.trim();
+        if(type == int.class || type == Integer.class)
+            return Integer.valueOf(text);
+        if(type == long.class || type == Long.class)
+            return Long.valueOf(text);
+        if(type == double.class || type == Double.class)
+            return Double.valueOf(text);
+        if(type == float.class || type == Float.class)
+            return Float.valueOf(text);
+        if(type == boolean.class || type == Boolean.class)
+            return Boolean.valueOf(text);
+        if(type == short.class || type == Short.class)
+            return Short.valueOf(text);
+        if(type == byte.class || type == Byte.class)
+            return Byte.valueOf(text);
+        if(type == char.class || type == Character.class) {
+            if(text.length() != 1)
+                throw new IllegalArgumentException("Expected a single character but found \"" + text + "\"");
+            return text.charAt(0);
+        }
+        if(type.isEnum())
+            return enumConstant(type, text);
+        throw new IllegalArgumentException("Can't convert \"" + text + "\" to " + type.getName());
+    }
+
+    /**
+     * Reads a CSV file one line at a time, converting each line's fields to the parameter
+     * types. Fields may be wrapped in double quotes, with "" standing for a quote inside them.
+     */
+    private static class CsvRows implements Iterator<Object[]> {
+
+        private BufferedReader reader;
+        private Class<?>[] types;
+        private String line;
+
+        CsvRows(BufferedReader reader, Class<?>[] types) {
+            this.reader = reader;
+            this.types = types;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while(line == null) {
+                    line = reader.readLine();
+                    if(line == null)
+                        return false;
+                    if(line.trim().equals("") || line.startsWith("#"))
+                        line = null;
+                }
+                return true;
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public Object[] next() {
+            if(!hasNext())
+                throw new NoSuchElementException();
+            List<String> fields = split(line);
+            line = null;
+            if(fields.size() != types.length)
+                throw new IllegalArgumentException("Expected " + types.length + " fields but found " + fields.size());
+            Object[] arguments = new Object[types.length];
+            for(int i = 0; i < arguments.length; i++)
+                arguments[i] = convert(fields.get(i), types[i]);
+            return arguments;
+        }
+
+        private List<String> split(String text) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for(int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if(quoted) {
+                    if(c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    }
+                    else if(c == '"') {
+                        quoted = false;
+                    }
+                    else {
+                        field.append(c);
+                    }
+                }
+                else if(c == '"') {
+                    quoted = true;
+                }
+                else if(c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                }
+                else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Reads records of DataOutputStream values, one value per parameter, until the file ends.
+     */
+    private static class BinaryRecords implements Iterator<Object[]> {
+
+        private DataInputStream in;
+        private Class<?>[] types;
+        private Object[] record;
+        private boolean ended = false;
+
+        BinaryRecords(DataInputStream in, Class<?>[] types) {
+            this.in = in;
+            this.types = types;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if(record != null)
+                return true;
+            if(ended)
+                return false;
+            try {
+                record = new Object[types.length];
+                for(int i = 0; i < types.length; i++) {
+                    try {
+                        record[i] = read(types[i]);
+                    } catch (EOFException e) {
+                        if(i > 0)
+                            throw e;    // the file ends in the middle of a record
+                        record = null;
+                        ended = true;
+                        return false;
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public Object[] next() {
+            if(!hasNext())
+                throw new NoSuchElementException();
+            Object[] next = record;
+            record = null;
+            return next;
+        }
+
+        private Object read(Class<?> type) throws IOException {
+            if(type == int.class || type == Integer.class)
+                return in.readInt();
+            if(type == long.class || type == Long.class)
+                return in.readLong();
+            if(type == double.class || type == Double.class)
+                return in.readDouble();
+            if(type == float.class || type == Float.class)
+                return in.readFloat();
+            if(type == boolean.class || type == Boolean.class)
+                return in.readBoolean();
+            if(type == short.class || type == Short.class)
+                return in.readShort();
+            if(type == byte.class || type == Byte.class)
+                return in.readByte();
+            if(type == char.class || type == Character.class)
+                return in.readChar();
+            if(type == String.class || type == Object.class || type == CharSequence.class)
+                return in.readUTF();
+            if(type.isEnum())
+                return enumConstant(type, in.readUTF());
+            throw new IOException("Can't read a " + type.getName() + " from a binary case file");
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package test;
+
+import test.annotations.LiteBenchmark;
+import test.annotations.LiteClass;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A minimal class file reader used to decide whether a class is worth loading. It reads the
+ * constant pool and the RuntimeVisibleAnnotations attributes of the class and its methods,
+ * and skips over everything else. Loading a class through reflection runs its static
+ * initializer and keeps it in memory for good, so LiteTarget asks this first.
+ */
+class LiteClassFile {
+
+    static final String CLASS_ANNOTATION = descriptor(LiteClass.class);
+    static final String TEST_ANNOTATION = descriptor(test.annotations.LiteTest.class);
+    static final String BENCHMARK_ANNOTATION = descriptor(LiteBenchmark.class);
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final String ANNOTATIONS_ATTRIBUTE = "RuntimeVisibleAnnotations";
+
+    private String[] utf8;
+    private boolean classAnnotated;
+    private Set<String> methodAnnotations = new HashSet<>();
+
+    private LiteClassFile() {}
+
+    /**
+     * True if the class itself is marked with @LiteClass.
+     */
+    boolean hasClassAnnotation() {
+        return classAnnotated;
+    }
+
+    /**
+     * True if at least one method in the class is marked with the given annotation.
+     * @param annotationDescriptor The annotation's type descriptor, such as TEST_ANNOTATION.
+     */
+    boolean hasMethodAnnotation(String annotationDescriptor) {
+        return methodAnnotations.contains(annotationDescriptor);
+    }
+
+    static String descriptor(Class<?> annotation) {
+        return "L" + annotation.getName().replace('.', '/') + ";";
+    }
+
+    /**
+     * Reads a class file from the stream. The stream is not closed.
+     * @throws IOException if the stream could not be read or is not a class file.
+     */
+    static LiteClassFile read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        LiteClassFile classFile = new LiteClassFile();
+
+        if(in.readInt() != MAGIC)
+            throw new IOException("Not a class file");
+        in.readUnsignedShort();     // minor version
+        in.readUnsignedShort();     // major version
+
+        if(!classFile.readConstantPool(in))
+            return classFile;       // neither annotation is referenced anywhere in the class
+
+        in.readUnsignedShort();     // access flags
+        in.readUnsignedShort();     // this class
+        in.readUnsignedShort();     // super class
+        skip(in, 2 * in.readUnsignedShort());   // interfaces
+
+        int fieldCount = in.readUnsignedShort();
+        for(int i = 0; i < fieldCount; i++) {
+            skip(in, 6);
+            classFile.readAttributes(in, null);
+        }
+
+        int methodCount = in.readUnsignedShort();
+        for(int i = 0; i < methodCount; i++) {
+            skip(in, 6);
+            classFile.readAttributes(in, classFile.methodAnnotations);
+        }
+
+        Set<String> classAnnotations = new HashSet<>();
+        classFile.readAttributes(in, classAnnotations);
+        classFile.classAnnotated = classAnnotations.contains(CLASS_ANNOTATION);
+        return classFile;
+    }
+
+    /**
+     * Reads the constant pool, keeping only the UTF8 entries.
+     * @return true if any entry could name one of LiteUnit's annotations.
+     */
+    private boolean readConstantPool(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        utf8 = new String[count];
+        boolean referencesLiteUnit = false;
+
+        for(int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1:     // Utf8
+                    utf8[i] = in.readUTF();
+                    if(utf8[i].startsWith("Ltest/annotations/"))
+                        referencesLiteUnit = true;
+                    break;
+                case 5:     // Long
+                case 6:     // Double
+                    skip(in, 8);
+                    i++;
+                    break;
+                case 3:     // Integer
+                case 4:     // Float
+                case 9:     // Fieldref
+                case 10:    // Methodref
+                case 11:    // InterfaceMethodref
+                case 12:    // NameAndType
+                case 17:    // Dynamic
+                case 18:    // InvokeDynamic
+                    skip(in, 4);
+                    break;
+                case 15:    // MethodHandle
+                    skip(in, 3);
+                    break;
+                case 7:     // Class
+                case 8:     // String
+                case 16:    // MethodType
+                case 19:    // Module
+                case 20:    // Package
+                    skip(in, 2);
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+        return referencesLiteUnit;
+    }
+
+    private void readAttributes(DataInputStream in, Set<String> annotations) throws IOException {
+        int count = in.readUnsignedShort();
+        for(int i = 0; i < count; i++) {
+            String name = utf8[in.readUnsignedShort()];
+            int length = in.readInt();
+            if(annotations != null && ANNOTATIONS_ATTRIBUTE.equals(name)) {
+                int annotationCount = in.readUnsignedShort();
+                for(int j = 0; j < annotationCount; j++)
+                    readAnnotation(in, annotations);
+            }
+            else {
+                skip(in, length);
+            }
+        }
+    }
+
+    private void readAnnotation(DataInputStream in, Set<String> annotations) throws IOException {
+        if(annotations != null)
+            annotations.add(utf8[in.readUnsignedShort()]);
+        else
+            in.readUnsignedShort();
+        int pairCount = in.readUnsignedShort();
+        for(int i = 0; i < pairCount; i++) {
+            in.readUnsignedShort();     // element name
+            skipElementValue(in);
+        }
+    }
+
+    private void skipElementValue(DataInputStream in) throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case 'e':
+                skip(in, 4);
+                break;
+            case '@':
+                readAnnotation(in, null);
+                break;
+            case '[':
+                int valueCount = in.readUnsignedShort();
+                for(int i = 0; i < valueCount; i++)
+                    skipElementValue(in);
+                break;
+            default:    // constants and class literals are a single index
+                skip(in, 2);
+                break;
+        }
+    }
+
+    private static void skip(DataInputStream in, int bytes) throws IOException {
+        while(bytes > 0) {
+            int skipped = in.skipBytes(bytes);
+            if(skipped <= 0) {
+                in.readByte();      // throws at the end of the stream
+                skipped = 1;
+            }
+            bytes -= skipped;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package test;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A child-first class loader over the classpath. Test classes and the application classes
+ * they use are defined by this loader rather than borrowed from its parent, while the JDK and
+ * LiteUnit itself always come from the parent, so that annotations and asserts stay shared.
+ * <br>
+ * The loader can also track every class it defines, which tells the driver which application
+ * classes a test class touched while its tests ran.
+ */
+class LiteClassLoader extends URLClassLoader {
+
+    private Set<String> defined;
+
+    /**
+     * @param track Set to true to remember the name of every class this loader defines.
+     */
+    LiteClassLoader(List<Path> roots, ClassLoader parent, boolean track) {
+        super(toUrls(roots), parent);
+        if(track)
+            defined = Collections.synchronizedSet(new HashSet<String>());
+    }
+
+    /**
+     * The names of the classes this loader has defined so far, or an empty set if it isn't
+     * tracking them.
+     */
+    Set<String> getDefinedClasses() {
+        if(defined == null)
+            return Collections.emptySet();
+        synchronized (defined) {
+            return new HashSet<>(defined);
+        }
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if(isShared(name))
+            return super.loadClass(name, resolve);
+
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> loaded = findLoadedClass(name);
+            if(loaded == null) {
+                try {
+                    loaded = findClass(name);
+                } catch (ClassNotFoundException e) {
+                    return super.loadClass(name, resolve);
+                }
+                if(defined != null)
+                    defined.add(name);
+            }
+            if(resolve)
+                resolveClass(loaded);
+            return loaded;
+        }
+    }
+
+    private static boolean isShared(String name) {
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.") ||
+                name.startsWith("sun.") || name.startsWith("com.sun.") ||
+                name.startsWith("asserts.") || name.startsWith("test.annotations.") || name.startsWith("test.Lite");
+    }
+
+    private static URL[] toUrls(List<Path> roots) {
+        URL[] urls = new URL[roots.size()];
+        try {
+            for(int i = 0; i < urls.length; i++)
+                urls[i] = roots.get(i).toUri().toURL();
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException(e);
+        }
+        return urls;
+    }
+}
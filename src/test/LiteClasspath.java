@@ -0,0 +1,145 @@
+package test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Finds compiled classes on a set of classpath roots. Each root may be a directory of
+ * .class files or a jar, which is opened as a zip file system so both are walked the
+ * same way. Directories are listed in parallel on the common fork-join pool.
+ * <br>
+ * Nested classes (anything with a '$' in its name) are skipped, the same way that
+ * scanning .java files never finds them.
+ */
+class LiteClasspath {
+
+    private static final String CLASS_EXT = ".class";
+
+    private List<Path> roots;
+
+    LiteClasspath(List<Path> roots) {
+        this.roots = roots;
+    }
+
+    /**
+     * Builds a LiteClasspath from the java.class.path system property.
+     */
+    static LiteClasspath fromSystem() {
+        List<Path> roots = new ArrayList<>();
+        for(String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            if(!entry.equals(""))
+                roots.add(Paths.get(entry).toAbsolutePath());
+        }
+        return new LiteClasspath(roots);
+    }
+
+    List<Path> getRoots() {
+        return roots;
+    }
+
+    /**
+     * Finds the names of every class in the package or class named by dotPath.
+     * @param dotPath The dot separated name of a package or class. "" is the root package.
+     * @param recurse Set to true to include classes in sub packages of dotPath.
+     * @return The fully qualified class names that were found, sorted and without duplicates.
+     */
+    List<String> findClasses(String dotPath, boolean recurse) {
+        Queue<String> found = new ConcurrentLinkedQueue<>();
+        for(Path root : roots) {
+            try {
+                if(Files.isDirectory(root)) {
+                    findClasses(root, dotPath, recurse, found);
+                }
+                else if(Files.isRegularFile(root) && root.toString().endsWith(".jar")) {
+                    try (FileSystem jar = FileSystems.newFileSystem(root, (ClassLoader) null)) {
+                        findClasses(jar.getPath("/"), dotPath, recurse, found);
+                    }
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        List<String> classNames = new ArrayList<>(found);
+        Collections.sort(classNames);
+        for(int i = classNames.size() - 1; i > 0; i--) {
+            if(classNames.get(i).equals(classNames.get(i - 1)))
+                classNames.remove(i);
+        }
+        return classNames;
+    }
+
+    private void findClasses(Path root, String dotPath, boolean recurse, Queue<String> found) {
+        Path target = root;
+        if(!dotPath.equals("")) {
+            target = root.resolve(dotPath.replace(".", root.getFileSystem().getSeparator()));
+            if(Files.isRegularFile(target.resolveSibling(target.getFileName() + CLASS_EXT))) {
+                found.add(dotPath);
+                return;
+            }
+        }
+        if(Files.isDirectory(target))
+            ForkJoinPool.commonPool().invoke(new Walk(root, target, recurse, found));
+    }
+
+    static String toClassName(Path root, Path classFile) {
+        String relative = root.relativize(classFile).toString();
+        relative = relative.substring(0, relative.length() - CLASS_EXT.length());
+        return relative.replace(root.getFileSystem().getSeparator(), ".");
+    }
+
+    static boolean isClassFile(Path path) {
+        String name = path.getFileName().toString();
+        return name.endsWith(CLASS_EXT) && name.indexOf('$') < 0 &&
+                !name.equals("module-info.class") && !name.equals("package-info.class");
+    }
+
+    private static class Walk extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private Path root;
+        private Path directory;
+        private boolean recurse;
+        private Queue<String> found;
+
+        Walk(Path root, Path directory, boolean recurse, Queue<String> found) {
+            this.root = root;
+            this.directory = directory;
+            this.recurse = recurse;
+            this.found = found;
+        }
+
+        @Override
+        protected void compute() {
+            List<Walk> subdirectories = new ArrayList<>();
+            try (DirectoryStream<Path> contents = Files.newDirectoryStream(directory)) {
+                for(Path member : contents) {
+                    if(Files.isDirectory(member)) {
+                        if(recurse)
+                            subdirectories.add(new Walk(root, member, true, found));
+                    }
+                    else if(isClassFile(member)) {
+                        found.add(toClassName(root, member));
+                    }
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            invokeAll(subdirectories);
+        }
+    }
+}
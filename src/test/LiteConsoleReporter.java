@@ -0,0 +1,42 @@
+package test;
+
+import java.io.PrintStream;
+
+/**
+ * A LiteReporter that prints one line per test as soon as it finishes, followed by the
+ * short error for any failure.
+ */
+public class LiteConsoleReporter implements LiteReporter {
+
+    private PrintStream out;
+
+    /**
+     * Prints to System.out.
+     */
+    public LiteConsoleReporter() {
+        this(System.out);
+    }
+
+    public LiteConsoleReporter(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void testStarted(String className, String methodName) {
+    }
+
+    @Override
+    public void testFinished(LiteResult result) {
+        out.println(result.getClassName() + "." + result.getMethodName() + " --> " +
+                (result.isPassed() ? " SUCCESS" : " FAILURE") +
+                " (" + LiteTest.formatDuration(result.getDuration()) + ")");
+        if(!result.isPassed())
+            out.println(result.getException());
+    }
+
+    @Override
+    public void runFinished(int testsRun, int testsFailed, long duration) {
+        out.println("Tests Run: " + testsRun + ", Tests Failed: " + testsFailed +
+                ", Time: " + LiteTest.formatDuration(duration));
+    }
+}
@@ -1,7 +1,33 @@
 package test;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * I simple unit test driver. To use LiteDriver, you must first annotate classes
@@ -17,11 +43,19 @@ import java.util.TreeSet;
  *     <li>Call reset() to prep the TestDriver for a new set of tests</li>
  * </ol>
  * <b>NOTE: </b> The runTests() method may be invoked to automate these steps for a single package or class.
+ * <br>
+ * Tests are found by scanning the .java files under a source directory, or by scanning the compiled
+ * classes on the classpath when the driver is created with fromClasspath(String).
  */
 public class LiteDriver {
 
-    private String fullSrcPath;    // doesn't remove a leading slash
+    private String fullSrcPath;    // doesn't remove a leading slash, null when scanning the classpath
     private String localTestRoot;
+    private LiteClasspath classpath;
+    private LiteIndex index;
+    private LiteImpact impact;
+    private boolean isolated = false;
+    private LiteClassLoader runLoader;
     /**
      * false is the default for whether or not to scan packages recursively.
      */
@@ -38,10 +72,35 @@ public class LiteDriver {
      * "" is the default for the target starting at the testing root that was set up in the constructor originally
      */
     public final String TARGET_DOT_NAME_DEFAULT = "";
+    /**
+     * 1 is the default number of threads used to execute tests, which runs every test on the calling thread
+     */
+    public final int THREAD_COUNT_DEFAULT = 1;
+    /**
+     * 5 is the default number of slowest tests and classes listed by prettyPrint
+     */
+    public final int SLOWEST_COUNT_DEFAULT = 5;
+    private static final long WATCH_QUIET_MILLIS = 200;
+    private static final int PIPELINE_CAPACITY = 64;     // classes scanned ahead of the tests running
     private char slash = File.separatorChar;
     private TreeSet<LiteTest> queuedTests;
+    private List<LiteReporter> reporters = new ArrayList<>();
+    private LiteHistory history;
+    private Properties benchmarkBaseline;
+    private double benchmarkTolerance;
+    private LiteOrder executionOrder = LiteOrder.ALPHABETICAL;
+    private int maxFailures = 0;
+    private LiteShard shard;
+    private boolean pipelined = false;
     private boolean hasExecuted = false;
 
+    /**
+     * See fromClasspath(String)
+     */
+    public LiteDriver() {
+        this(LiteClasspath.fromSystem(), "");
+    }
+
     /**
      * See LiteDriver(String, String)
      */
@@ -76,6 +135,27 @@ public class LiteDriver {
         System.out.println("New driver test root: " + cleanPath(this.localTestRoot, '.', true));
     }
 
+    private LiteDriver(LiteClasspath classpath, String localTestRoot) {
+        this.classpath = classpath;
+        this.localTestRoot = cleanPath(localTestRoot, slash, true);
+        this.queuedTests = new TreeSet<>();
+
+        System.out.println("New driver classpath: " + classpath.getRoots());
+        System.out.println("New driver test root: " + cleanPath(this.localTestRoot, '.', true));
+    }
+
+    /**
+     * Sets up a test driver that discovers tests among the compiled classes on the
+     * classpath (java.class.path) instead of scanning .java files. Directories of
+     * .class files and jars are both searched, so the sources do not need to be
+     * shipped next to the binaries.
+     * @param localTestRoot The dot separated path to the root package of your tests.
+     *                      See LiteDriver(String, String).
+     */
+    public static LiteDriver fromClasspath(String localTestRoot) {
+        return new LiteDriver(LiteClasspath.fromSystem(), localTestRoot);
+    }
+
 
     // ===== FIND, QUEUE, AND RUN TESTS
     // ================================
@@ -129,6 +209,8 @@ public class LiteDriver {
      *     <li>executeQueuedTests()</li>
      *     <li>prettyPrint(boolean)</li>
      * </ul>
+     * The first two may overlap instead, see setPipelined(boolean).
+     * <br>
      * The default parameters for the class are used unless overridden by a parameter of this
      * or any other overload of runTests().
      * @param targetDotName The dot-separated name of the package or class to be scanned.
@@ -143,8 +225,22 @@ public class LiteDriver {
      *                           want to add tests to a class without making a new class to house the tests.
      */
     public void runTests(String targetDotName, boolean recurse, boolean fullTrace, boolean scanNonTestClasses){
-        queueTests(targetDotName, recurse, scanNonTestClasses);
-        executeQueuedTests();
+        runTests(targetDotName, recurse, fullTrace, scanNonTestClasses, THREAD_COUNT_DEFAULT);
+    }
+
+    /**
+     * Same as runTests(String, boolean, boolean, boolean) but executes the tests using
+     * executeQueuedTests(int).
+     * @param threadCount The number of worker threads to execute the tests on.
+     */
+    public void runTests(String targetDotName, boolean recurse, boolean fullTrace, boolean scanNonTestClasses, int threadCount){
+        if(pipelined && threadCount > 1 && shard == null && executionOrder == LiteOrder.ALPHABETICAL) {
+            queueAndExecuteTests(targetDotName, recurse, scanNonTestClasses, threadCount);
+        }
+        else {
+            queueTests(targetDotName, recurse, scanNonTestClasses);
+            executeQueuedTests(threadCount);
+        }
         prettyPrint(fullTrace);
         reset();
     }
@@ -190,8 +286,11 @@ public class LiteDriver {
      *     <li>are marked with @LiteTest</li>
      *     <li>are public</li>
      *     <li>return void</li>
-     *     <li>have no parameters</li>
+     *     <li>have no parameters, unless they are also marked with @LiteParameters</li>
      * </ul>
+     * Methods marked with @LiteBenchmark are queued as benchmarks under the same conditions,
+     * except that they may take a LiteBlackhole as their only parameter. Tests also marked
+     * with @LiteConcurrent are run as stress tests, from several threads at once.
      * Classes with 'Lite' anywhere in their name are ignored.
      * <br>
      * <b>NOTE: </b> Default parameters for the class will be used if this function is
@@ -211,19 +310,306 @@ public class LiteDriver {
      */
     public void queueTests(String targetDotName, boolean recurse, boolean scanNonTestClasses) {
 
+        String fullTargetDotName = resolveTarget(targetDotName);
+        int diff = queuedTests.size();
+        queuedTests.addAll(discover(fullTargetDotName, recurse, scanNonTestClasses));
+        diff = queuedTests.size() - diff;
+        System.out.println("Scanning " + (fullTargetDotName.equals("") ? "" : (fullTargetDotName + " ")) + "found " + diff + " new tests.");
+    }
+
+    /**
+     * Same as queueTests(String, boolean, boolean) but only queues the tests that could be
+     * affected by the given changes: those that touched a changed class the last time they ran,
+     * and those that haven't been recorded yet. Requires an impact file, see setImpactFile().
+     * Without one every discovered test is queued.
+     * @param changedFiles The paths of the .java or .class files that changed, such as the
+     *                     output of "git diff --name-only". Other files are ignored. A path
+     *                     matches a class if it ends with the class's package and name, so
+     *                     it doesn't matter which directory the paths start from.
+     */
+    public void queueImpactedTests(String targetDotName, boolean recurse, boolean scanNonTestClasses, Collection<String> changedFiles) {
+
+        String fullTargetDotName = resolveTarget(targetDotName);
+        List<LiteTest> discovered = discover(fullTargetDotName, recurse, scanNonTestClasses);
+        int diff = queuedTests.size();
+        if(impact == null) {
+            queuedTests.addAll(discovered);
+        }
+        else {
+            Set<String> changedNames = LiteImpact.toChangedNames(changedFiles);
+            for(LiteTest test : discovered) {
+                if(impact.isAffected(test, changedNames))
+                    queuedTests.add(test);
+            }
+        }
+        diff = queuedTests.size() - diff;
+        System.out.println("Scanning " + (fullTargetDotName.equals("") ? "" : (fullTargetDotName + " ")) + "found " +
+                discovered.size() + " tests, " + diff + " new tests affected by " + changedFiles.size() + " changed files.");
+    }
+
+    private String resolveTarget(String targetDotName) {
         if(hasExecuted)
             System.out.println("!!TEST DRIVER ERROR!!\n*You must reset the TestDriver using reset() before you can queue or run a new batch of tests.");
         String fullTargetDotName = cleanPath(targetDotName, '.', true);
         if(localTestRoot != null && !localTestRoot.equals(""))
             fullTargetDotName = cleanPath(localTestRoot + "." + fullTargetDotName, '.', true);
+        return fullTargetDotName;
+    }
 
-        String targetFullSlashName = fullSrcPath + slash + cleanPath(fullTargetDotName, slash, true);
+    private List<LiteTest> discover(String fullTargetDotName, boolean recurse, boolean scanNonTestClasses) {
 
-        LiteTarget testTarget = new LiteTarget(targetFullSlashName, fullTargetDotName, recurse, !scanNonTestClasses);
-        int diff = queuedTests.size();
-        queuedTests.addAll(testTarget.makeTestList());
-        diff = queuedTests.size() - diff;
-        System.out.println("Scanning " + (fullTargetDotName.equals("") ? "" : (fullTargetDotName + " ")) + "found " + diff + " new tests.");
+        List<LiteTest> discovered = makeTarget(fullTargetDotName, recurse, scanNonTestClasses).makeTestList();
+        if(index != null)
+            index.save();
+        return discovered;
+    }
+
+    private LiteTarget makeTarget(String fullTargetDotName, boolean recurse, boolean scanNonTestClasses) {
+
+        LiteTarget testTarget;
+        if(classpath != null) {
+            testTarget = new LiteTarget(classpath, fullTargetDotName, recurse, !scanNonTestClasses);
+        }
+        else {
+            String targetFullSlashName = fullSrcPath + slash + cleanPath(fullTargetDotName, slash, true);
+            testTarget = new LiteTarget(targetFullSlashName, fullTargetDotName, recurse, !scanNonTestClasses);
+        }
+        if(isolated)
+            testTarget.setClassLoader(getRunLoader());
+        testTarget.setIndex(index);
+        if(impact != null)
+            testTarget.setTrackClasses(getClassDirectories());
+        return testTarget;
+    }
+
+
+    /**
+     * See watchTests(String, boolean, boolean, boolean, int)
+     */
+    public void watchTests(String targetDotName, boolean recurse){
+        watchTests(targetDotName, recurse, FULL_TRACE_DEFAULT, SCAN_NON_TEST_CLASS_DEFAULT, THREAD_COUNT_DEFAULT);
+    }
+
+    /**
+     * Runs the tests once like runTests(String, boolean, boolean, boolean, int), then keeps
+     * watching for changed files and reruns just the tests they affect, until the calling
+     * thread is interrupted. The JVM stays warm between runs, so each rerun only pays for the
+     * tests it runs.
+     * <br>
+     * The source directory (if the driver has one) and the directories on the classpath are
+     * watched. Changes are collected until the files have been quiet for a moment, then the
+     * changed classes within the target are rediscovered through a fresh class loader (see
+     * setIsolated()), so the new versions of the classes are the ones that run. A changed test class reruns its own
+     * tests. A changed application class reruns the tests that touched it when an impact file
+     * has been set with setImpactFile(), and nothing otherwise.
+     * <br>
+     * Classes in jars are not watched.
+     */
+    public void watchTests(String targetDotName, boolean recurse, boolean fullTrace, boolean scanNonTestClasses, int threadCount){
+        String fullTargetDotName = resolveTarget(targetDotName);
+        boolean wasIsolated = isolated;
+        isolated = true;
+        runTests(targetDotName, recurse, fullTrace, scanNonTestClasses, threadCount);
+
+        List<Path> watchRoots = new ArrayList<>();
+        if(fullSrcPath != null)
+            watchRoots.add(Paths.get(fullSrcPath));
+        watchRoots.addAll(getClassDirectories());
+
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            Map<WatchKey, Path> watched = new HashMap<>();
+            for(Path root : watchRoots)
+                watchDirectories(watcher, root, watched);
+            System.out.println("Watching " + watchRoots + " for changes...");
+
+            while(!Thread.currentThread().isInterrupted()) {
+                Set<String> changed = new TreeSet<>();
+                WatchKey key = watcher.take();
+                while(key != null) {
+                    collectChanges(key, watcher, watchRoots, watched, changed);
+                    key = watcher.poll(WATCH_QUIET_MILLIS, TimeUnit.MILLISECONDS);
+                }
+
+                Set<String> toRun = new TreeSet<>();
+                for(String className : changed) {
+                    if(isInTarget(className, fullTargetDotName, recurse))
+                        toRun.add(className);
+                }
+                if(impact != null)
+                    toRun.addAll(impact.affectedClasses(LiteImpact.toChangedNames(changedPaths(changed))));
+                if(toRun.isEmpty())
+                    continue;
+
+                for(String className : toRun) {
+                    if(getRunLoader().getResource(className.replace('.', '/') + ".class") != null)
+                        queuedTests.addAll(discover(className, false, scanNonTestClasses));
+                }
+                System.out.println("\n" + changed.size() + " changed classes, rerunning " + queuedTests.size() + " tests.");
+                if(!queuedTests.isEmpty()) {
+                    executeQueuedTests(threadCount);
+                    prettyPrint(fullTrace);
+                }
+                reset();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            reset();
+            isolated = wasIsolated;
+        }
+    }
+
+    private void watchDirectories(WatchService watcher, Path directory, Map<WatchKey, Path> watched) throws IOException {
+        if(!Files.isDirectory(directory))
+            return;
+        watched.put(directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE), directory);
+        try (DirectoryStream<Path> contents = Files.newDirectoryStream(directory)) {
+            for(Path member : contents) {
+                if(Files.isDirectory(member))
+                    watchDirectories(watcher, member, watched);
+            }
+        }
+    }
+
+    /**
+     * Adds the names of the classes behind the key's events to changed, and starts watching
+     * any directory that was created.
+     */
+    private void collectChanges(WatchKey key, WatchService watcher, List<Path> watchRoots, Map<WatchKey, Path> watched,
+                                Set<String> changed) throws IOException {
+        Path directory = watched.get(key);
+        for(WatchEvent<?> event : key.pollEvents()) {
+            if(directory == null || event.kind() == StandardWatchEventKinds.OVERFLOW)
+                continue;
+            Path file = directory.resolve((Path) event.context());
+            if(event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(file)) {
+                watchDirectories(watcher, file, watched);
+                continue;
+            }
+            for(Path root : watchRoots) {
+                if(!file.startsWith(root))
+                    continue;
+                String className = classNameOf(root.relativize(file).toString());
+                if(className != null)
+                    changed.add(className);
+                break;
+            }
+        }
+        if(!key.reset())
+            watched.remove(key);
+    }
+
+    private static String classNameOf(String relativePath) {
+        String className;
+        if(relativePath.endsWith(".java"))
+            className = relativePath.substring(0, relativePath.length() - ".java".length());
+        else if(relativePath.endsWith(".class"))
+            className = relativePath.substring(0, relativePath.length() - ".class".length());
+        else
+            return null;
+        className = className.replace(File.separatorChar, '.');
+        int nested = className.indexOf('$');
+        return nested < 0 ? className : className.substring(0, nested);
+    }
+
+    private static List<String> changedPaths(Set<String> classNames) {
+        List<String> paths = new ArrayList<>(classNames.size());
+        for(String className : classNames)
+            paths.add(className.replace('.', '/') + ".class");
+        return paths;
+    }
+
+    private static boolean isInTarget(String className, String fullTargetDotName, boolean recurse) {
+        if(fullTargetDotName.equals(""))
+            return recurse || className.indexOf('.') < 0;
+        if(className.equals(fullTargetDotName))
+            return true;
+        if(!className.startsWith(fullTargetDotName + "."))
+            return false;
+        return recurse || className.indexOf('.', fullTargetDotName.length() + 1) < 0;
+    }
+
+    /**
+     * Keeps an index of discovered tests in the given file. Later calls to queueTests(), in this
+     * or any other run, reuse what the index already knows about a class as long as its class
+     * file has not changed, and only inspect new or modified classes.
+     * @param indexPath The path of the index file. Relative paths start at the project root.
+     *                  Pass null to stop using an index.
+     */
+    public void setIndexFile(String indexPath){
+        if(indexPath == null) {
+            index = null;
+            return;
+        }
+        index = new LiteIndex(Paths.get(System.getProperty("user.dir")).resolve(indexPath));
+        index.load();
+    }
+
+    /**
+     * Loads the test classes of each run with a class loader of their own, instead of the loader
+     * that loaded LiteUnit. The loader is created when the first tests are queued and discarded
+     * by reset(), so the next run sees the current versions of the classes and the old ones can
+     * be unloaded. This keeps memory flat in drivers that run many cycles in one JVM.
+     * <br>
+     * The run's loader defines the classes found in the directories on the classpath, which is
+     * where a project's own compiled classes are. Classes in jars, such as libraries, are still
+     * taken from the parent loader and shared by every run.
+     * @param isolated Set to true to give each run its own class loader.
+     */
+    public void setIsolated(boolean isolated){
+        this.isolated = isolated;
+    }
+
+    private LiteClassLoader getRunLoader(){
+        if(runLoader == null)
+            runLoader = new LiteClassLoader(getClassDirectories(), LiteDriver.class.getClassLoader(), false);
+        return runLoader;
+    }
+
+    /**
+     * The directories on the classpath, leaving out jars, whose classes are always taken from
+     * the parent loader.
+     */
+    private List<Path> getClassDirectories(){
+        List<Path> directories = new ArrayList<>();
+        for(Path root : (classpath != null ? classpath : LiteClasspath.fromSystem()).getRoots()) {
+            if(Files.isDirectory(root))
+                directories.add(root);
+        }
+        return directories;
+    }
+
+    /**
+     * Records which classes each test touches while it runs, and keeps that record in the given
+     * file across runs, so that queueImpactedTests() can skip the tests a change can't affect.
+     * <br>
+     * While an impact file is set, every discovered test class is loaded by a class loader of
+     * its own, which also loads a fresh copy of the application classes it uses from the
+     * directories on the classpath. Classes in jars come from the parent loader, as with
+     * setIsolated(), so they are shared and never charged to a test. A class is
+     * charged to every test in the test class that caused it to be loaded, so the record errs
+     * on the side of running a test. Only executeQueuedTests() records; tests run in forks
+     * keep their last record.
+     * @param impactPath The path of the impact file. Relative paths start at the project root.
+     *                   Pass null to stop recording.
+     */
+    public void setImpactFile(String impactPath){
+        if(impactPath == null) {
+            impact = null;
+            return;
+        }
+        impact = new LiteImpact(Paths.get(System.getProperty("user.dir")).resolve(impactPath));
+        impact.load();
+    }
+
+    /**
+     * Queues tests that were built without a scan.
+     */
+    void queue(Collection<LiteTest> tests){
+        queuedTests.addAll(tests);
     }
 
 
@@ -239,11 +625,316 @@ public class LiteDriver {
      * or one of its overloads.
      */
     public void executeQueuedTests(){
+        executeQueuedTests(THREAD_COUNT_DEFAULT);
+    }
+
+    /**
+     * Same as executeQueuedTests() but spreads the tests across a work-stealing pool of
+     * threadCount workers. The results are still printed in the same sorted order.
+     * <br>
+     * Tests marked with @LiteTest(serial = true) are run one at a time on the calling
+     * thread once the rest have finished, and the tests of a class marked with the
+     * annotation @LiteClass(serial = true) are run one after another on a single worker.
+     * @param threadCount The number of worker threads to execute the tests on. A value of
+     *                    1 or less runs every test on the calling thread.
+     */
+    public void executeQueuedTests(int threadCount){
+        executeQueuedTests(new LiteExecutor(threadCount, reporters));
+    }
+
+    /**
+     * Same as executeQueuedTests() but runs each test on a virtual thread of its own, so that
+     * tests which spend their time waiting on sockets, files or services overlap without a
+     * platform thread each. At most maxConcurrent tests run at once. Serial tests and classes
+     * are handled as in executeQueuedTests(int), and benchmarks still run one at a time.
+     * <br>
+     * A virtual thread that blocks while pinned to its carrier, usually by waiting inside a
+     * synchronized block, holds up the other tests on that carrier. Each time a test does so
+     * for more than LiteVirtualThreads.PINNED_THRESHOLD_MILLIS it is counted, and prettyPrint()
+     * lists the tests that did and where.
+     * <br>
+     * Virtual threads need Java 21 or later. On an older JVM the tests run on platform threads
+     * instead, still capped at maxConcurrent, and pinning isn't reported.
+     * @param maxConcurrent The most tests to run at once.
+     */
+    public void executeQueuedTestsOnVirtualThreads(int maxConcurrent){
+        if(!LiteVirtualThreads.isSupported())
+            System.out.println("!!TEST DRIVER ERROR!!\n*Virtual threads need Java 21 or later, the tests will run on platform threads.");
+        LiteExecutor executor = new LiteExecutor(1, reporters);
+        executor.setVirtualThreads(Math.max(1, maxConcurrent));
+        executeQueuedTests(executor);
+    }
+
+    private void executeQueuedTests(LiteExecutor executor){
         if(hasExecuted)
             System.out.println("!!TEST DRIVER ERROR!!\n*You must reset the TestDriver using reset() before you can queue or run a new batch of tests.");
-        for(LiteTest test : queuedTests)
-            test.execute();
+        applyShard();
+        executor.setBenchmarkBaseline(benchmarkBaseline, benchmarkTolerance);
+        executor.setMaxFailures(maxFailures);
+        executor.execute(LiteExecutor.order(queuedTests, executionOrder, history));
+        executed(true);
+    }
+
+    /**
+     * Queues and executes the tests of the target at the same time, see runTests(). The scan
+     * runs on a thread of its own and hands each class over through a queue of PIPELINE_CAPACITY
+     * classes, so it can only get that far ahead of the tests. Any tests that were already
+     * queued are started first.
+     */
+    private void queueAndExecuteTests(String targetDotName, boolean recurse, boolean scanNonTestClasses, int threadCount){
+        String fullTargetDotName = resolveTarget(targetDotName);
+        final LiteTarget testTarget = makeTarget(fullTargetDotName, recurse, scanNonTestClasses);
+        final BlockingQueue<List<LiteTest>> batches = new ArrayBlockingQueue<>(PIPELINE_CAPACITY);
+        Thread scanner = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    testTarget.streamTestList(batches);
+                    if(index != null)
+                        index.save();
+                } finally {
+                    try {
+                        batches.put(LiteExecutor.END_OF_TESTS);
+                    } catch (InterruptedException e) {
+                        // the run was interrupted, so nothing is waiting for the end
+                    }
+                }
+            }
+        }, "LiteUnit-scanner");
+        scanner.setDaemon(true);
+
+        int diff = queuedTests.size();
+        LiteExecutor executor = new LiteExecutor(threadCount, reporters);
+        executor.setBenchmarkBaseline(benchmarkBaseline, benchmarkTolerance);
+        executor.setMaxFailures(maxFailures);
+        scanner.start();
+        executor.executePipelined(queuedTests, batches);
+        try {
+            scanner.join();
+        } catch (InterruptedException e) {
+            scanner.interrupt();
+            Thread.currentThread().interrupt();
+        }
+        diff = queuedTests.size() - diff;
+        System.out.println("Scanning " + (fullTargetDotName.equals("") ? "" : (fullTargetDotName + " ")) + "found " + diff + " new tests.");
+        executed(true);
+    }
+
+    /**
+     * Records the run in the history and impact files once the tests have executed.
+     * @param inProcess False if the tests ran in forks. Their impact records are left as they
+     *                  were, since the classes they touched were loaded in the child JVMs.
+     */
+    private void executed(boolean inProcess){
         hasExecuted = true;
+        recordHistory();
+        if(impact != null && inProcess) {
+            impact.record(queuedTests);
+            impact.save();
+        }
+    }
+
+    /**
+     * See executeQueuedTestsInForks(int, int)
+     */
+    public void executeQueuedTestsInForks(int forkCount){
+        executeQueuedTestsInForks(forkCount, THREAD_COUNT_DEFAULT);
+    }
+
+    /**
+     * Same as executeQueuedTests(int) but splits the queued tests into forkCount partitions and
+     * runs each partition in its own child JVM, started with the same classpath. This isolates
+     * tests that leak static state and lets a run scale past a single JVM. Results stream back
+     * from the children as the tests finish and are merged into the one set of results.
+     * <br>
+     * The tests of a class are always kept in the same JVM. If a history file has been set with
+     * setHistoryFile(), the partitions are balanced by how long the tests took last time,
+     * otherwise by the number of tests.
+     * <br>
+     * Only each test's result and resource usage are brought back from the children. Benchmark
+     * statistics, stress test summaries and the case counts of parameterized tests are not, so
+     * a warning is printed when any of those tests are queued. Whether they passed is still
+     * reported.
+     * @param forkCount The number of child JVMs to run.
+     * @param threadCount The number of worker threads each child runs its tests on.
+     */
+    public void executeQueuedTestsInForks(int forkCount, int threadCount){
+        if(hasExecuted)
+            System.out.println("!!TEST DRIVER ERROR!!\n*You must reset the TestDriver using reset() before you can queue or run a new batch of tests.");
+        applyShard();
+        warnForkedStatistics();
+        new LiteExecutor(threadCount, reporters).executeForked(queuedTests, forkCount, history);
+        executed(false);
+    }
+
+    /**
+     * Prints which queued tests will lose their statistics by running in a fork.
+     */
+    private void warnForkedStatistics(){
+        int benchmarks = 0;
+        int stressTests = 0;
+        int parameterized = 0;
+        for(LiteTest test : queuedTests) {
+            if(test.bench != null)
+                benchmarks++;
+            else if(test.stress != null)
+                stressTests++;
+            else if(test.parameterized)
+                parameterized++;
+        }
+        if(benchmarks + stressTests + parameterized == 0)
+            return;
+        System.out.println("Warning: statistics are not brought back from forked JVMs, so " + benchmarks +
+                " benchmarks, " + stressTests + " stress tests and " + parameterized +
+                " parameterized tests will be reported without them.");
+    }
+
+    /**
+     * Sets the order executeQueuedTests() starts the tests in. The orders other than the
+     * default, LiteOrder.ALPHABETICAL, need a history file, see setHistoryFile(). They run the
+     * tests that failed last time first, so a test that just broke is reported within seconds
+     * instead of wherever it falls in the alphabet. The results are printed in the same sorted
+     * order either way.
+     */
+    public void setExecutionOrder(LiteOrder order){
+        this.executionOrder = order;
+    }
+
+    /**
+     * Makes runTests() start running tests while it is still scanning for them. The target is
+     * scanned on a thread of its own, and the tests of each class start on the pool as soon as
+     * that class has been scanned, so the first results come in sooner and the run ends sooner
+     * on large trees. Results are still printed in the same sorted order once every test has
+     * finished, but the number of tests found is only printed after they have run.
+     * <br>
+     * Test classes are loaded on the scanning thread while other tests are running. Only runs
+     * with more than one thread are pipelined, and only when no shard and no execution order
+     * other than LiteOrder.ALPHABETICAL has been set, since those need every test before the
+     * first one starts. Any other run scans first, as it does by default.
+     * @param pipelined Set to true to overlap scanning and running.
+     */
+    public void setPipelined(boolean pipelined){
+        this.pipelined = pipelined;
+    }
+
+    /**
+     * Makes executeQueuedTests() stop starting new tests once maxFailures tests have failed.
+     * The tests that didn't get to run are reported as skipped, not failed. Pair this with
+     * setExecutionOrder() to get the likely failures first.
+     * @param maxFailures The number of failures to stop after. 0 runs every test.
+     */
+    public void setFailFast(int maxFailures){
+        this.maxFailures = maxFailures;
+    }
+
+    /**
+     * Splits the queued tests across shardCount nodes and runs only this node's share when the
+     * tests are executed, so that a CI run can be spread over several agents without keeping
+     * lists of packages by hand. Every node queues the same tests and picks its share the same
+     * way, without talking to the others, so between them the nodes run each test exactly once.
+     * <br>
+     * The tests of a class stay on one node. The shares are balanced by the durations in the
+     * history file if one has been set with setHistoryFile(), and by the number of tests
+     * otherwise. Every node must load the same history for the shares to line up, for example
+     * one written by the node that merges the results, see mergeShardResults().
+     * @param shardIndex This node's shard, from 0 to shardCount - 1.
+     * @param shardCount The number of nodes. 1 runs every test.
+     */
+    public void setShard(int shardIndex, int shardCount){
+        if(shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) {
+            System.out.println("!!TEST DRIVER ERROR!!\n*Shard " + shardIndex + " of " + shardCount + " doesn't exist, shards are numbered from 0.");
+            return;
+        }
+        shard = shardCount == 1 ? null : new LiteShard(shardIndex, shardCount);
+    }
+
+    private void applyShard(){
+        if(shard == null)
+            return;
+        int total = queuedTests.size();
+        List<LiteTest> selected = shard.select(queuedTests, history);
+        queuedTests.clear();
+        queuedTests.addAll(selected);
+        System.out.println("Shard " + shard.index + " of " + shard.count + " runs " + selected.size() + " of " + total + " tests.");
+    }
+
+    /**
+     * Keeps a history of how long each test took, and whether it passed, in the given file,
+     * across runs. The history is used to balance the partitions of executeQueuedTestsInForks()
+     * and by setExecutionOrder().
+     * @param historyPath The path of the history file. Relative paths start at the project root.
+     *                    Pass null to stop keeping a history.
+     */
+    public void setHistoryFile(String historyPath){
+        if(historyPath == null) {
+            history = null;
+            return;
+        }
+        history = new LiteHistory(Paths.get(System.getProperty("user.dir")).resolve(historyPath));
+        history.load();
+    }
+
+    private void recordHistory(){
+        if(history == null)
+            return;
+        history.record(queuedTests);
+        history.save();
+    }
+
+    /**
+     * Compares @LiteBenchmark results against a baseline written earlier by saveBenchmarks().
+     * A benchmark whose mean time per call is more than the tolerance slower than its baseline
+     * is reported as a failure. Benchmarks that aren't in the baseline are never flagged.
+     * @param path The baseline file. Relative paths start at the project root.
+     * @param tolerance How much slower a benchmark may get before it fails, as a fraction.
+     *                  0.1 allows it to be up to 10% slower.
+     */
+    public void setBenchmarkBaseline(String path, double tolerance){
+        benchmarkBaseline = new Properties();
+        benchmarkTolerance = tolerance;
+        try (Reader in = Files.newBufferedReader(Paths.get(System.getProperty("user.dir")).resolve(path), StandardCharsets.UTF_8)) {
+            benchmarkBaseline.load(in);
+        } catch (IOException e) {
+            System.out.println("!!TEST DRIVER ERROR!!\n*Could not read benchmark baseline " + path);
+        }
+    }
+
+    /**
+     * Writes the mean time per call of every benchmark that was executed, so that it can be
+     * used as the baseline for later runs. See setBenchmarkBaseline(String, double).
+     * @param path The file to write. Relative paths start at the project root.
+     */
+    public void saveBenchmarks(String path){
+        if(!hasExecuted) {
+            System.out.println("Tests have not yet been executed...");
+            return;
+        }
+        Properties results = new Properties();
+        for(LiteTest test : queuedTests) {
+            if(test.bench != null && test.hasRun)
+                results.setProperty(test.getClassName() + "#" + test.testMethod.getName(), String.valueOf(test.bench.mean));
+        }
+        try (Writer out = Files.newBufferedWriter(Paths.get(System.getProperty("user.dir")).resolve(path), StandardCharsets.UTF_8)) {
+            results.store(out, "LiteUnit benchmark means in ns/op");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Adds a reporter that is told about each test as soon as it finishes, instead of waiting
+     * for the whole batch and a call to prettyPrint(). Reporters stay attached across calls to
+     * reset(). See LiteConsoleReporter, LiteFileReporter and LiteMemoryReporter.
+     */
+    public void addReporter(LiteReporter reporter){
+        reporters.add(reporter);
+    }
+
+    /**
+     * Removes every reporter that was added with addReporter().
+     */
+    public void clearReporters(){
+        reporters.clear();
     }
 
     /**
@@ -259,12 +950,25 @@ public class LiteDriver {
      * @param fullTrace Set to true in order to see the full stack trace for each error.
      */
     public void prettyPrint(boolean fullTrace){
+        prettyPrint(fullTrace, SLOWEST_COUNT_DEFAULT);
+    }
+    /**
+     * Same as prettyPrint(boolean) but with control over the timing report, which lists the
+     * slowest tests, the test classes that took the most time in total, and the tests that
+     * allocated the most along with their CPU time and the garbage collections they ran into.
+     * Tests that left threads running are always listed.
+     * @param fullTrace Set to true in order to see the full stack trace for each error.
+     * @param slowestCount The number of tests and classes to list in the timing report.
+     *                     0 leaves the report out.
+     */
+    public void prettyPrint(boolean fullTrace, int slowestCount){
         if(!hasExecuted) {
             System.out.println("Tests have not yet been executed...");
             return;
         }
         System.out.println("\n====================\n=== Test Results ===\n====================");
         TreeSet<LiteTest> failures = new TreeSet<>();
+        int skipped = 0;
 //        String prevClassName = "*blah*";
 
         // print the test results at a high level
@@ -279,7 +983,9 @@ public class LiteDriver {
             }*/
             System.out.print(thisClassName + ".");
             System.out.println(test.getShortResult());
-            if(!test.passed)
+            if(test.skipped)
+                skipped++;
+            else if(!test.passed)
                 failures.add(test);
         }
 
@@ -295,25 +1001,291 @@ public class LiteDriver {
                 System.out.println(fail.getTestException());
         }
 
+        printBenchmarks();
+        printStressTests();
+        printPinning();
+        printLeakedThreads();
+        if(slowestCount > 0) {
+            printTimings(slowestCount);
+            printUsage(slowestCount);
+        }
+
+        long totalTime = 0;
+        for(LiteTest test : queuedTests)
+            totalTime += test.duration;
+
         if(failures.size() == 0)
             System.out.println("\n ==== SUCCESS!! ==== ");
         else System.out.println("\n ==== FAILURE... ==== ");
-        System.out.println("Tests Run: " + queuedTests.size());
+        System.out.println("Tests Run: " + (queuedTests.size() - skipped));
         System.out.println("Tests Failed: " + failures.size());
+        if(skipped > 0)
+            System.out.println("Tests Skipped: " + skipped);
+        System.out.println("Test Time: " + LiteTest.formatDuration(totalTime));
 
     }
 
+    private void printBenchmarks(){
+        boolean printedHeader = false;
+        for(LiteTest test : queuedTests) {
+            if(test.bench == null || !test.hasRun || test.bench.mean == 0)
+                continue;
+            if(!printedHeader) {
+                System.out.println("\n==================\n=== Benchmarks ===\n==================");
+                printedHeader = true;
+            }
+            System.out.println(shortClassName(test.getClassName()) + "." + test.testMethod.getName() +
+                    (test.bench.isRegression() ? "  REGRESSION" : ""));
+            System.out.println("    " + test.bench.getSummary());
+        }
+    }
+
+    private void printStressTests(){
+        boolean printedHeader = false;
+        for(LiteTest test : queuedTests) {
+            if(test.stress == null || !test.hasRun || test.stress.calls == 0)
+                continue;
+            if(!printedHeader) {
+                System.out.println("\n====================\n=== Stress Tests ===\n====================");
+                printedHeader = true;
+            }
+            System.out.println(shortClassName(test.getClassName()) + "." + test.testMethod.getName());
+            System.out.println("    " + test.stress.getSummary());
+            for(String line : test.stress.getThreadFailures().split("\\R")) {
+                if(!line.isEmpty())
+                    System.out.println("    " + line);
+            }
+        }
+    }
+
+    private void printPinning(){
+        boolean printedHeader = false;
+        for(LiteTest test : queuedTests) {
+            if(test.pinnedCount == 0)
+                continue;
+            if(!printedHeader) {
+                System.out.println("\n==============================\n=== Pinned Virtual Threads ===\n==============================");
+                printedHeader = true;
+            }
+            System.out.println(shortClassName(test.getClassName()) + "." + test.testMethod.getName() + "\t" +
+                    test.pinnedCount + (test.pinnedCount == 1 ? " time, " : " times, ") +
+                    LiteTest.formatDuration(test.pinnedDuration) + " blocked" +
+                    (test.pinnedAt == null ? "" : ", first at " + test.pinnedAt));
+        }
+    }
+
+    private void printLeakedThreads(){
+        boolean printedHeader = false;
+        for(LiteTest test : queuedTests) {
+            if(test.probe == null || test.probe.leakedThreads.isEmpty())
+                continue;
+            if(!printedHeader) {
+                System.out.println("\n======================\n=== Leaked Threads ===\n======================");
+                printedHeader = true;
+            }
+            System.out.println(shortClassName(test.getClassName()) + "." + test.testMethod.getName() + "\t" +
+                    test.probe.leakedThreads);
+        }
+    }
+
+    private void printUsage(int count){
+        List<LiteTest> measured = new ArrayList<>();
+        for(LiteTest test : queuedTests) {
+            if(test.probe != null && test.probe.allocatedBytes >= 0)
+                measured.add(test);
+        }
+        if(measured.isEmpty())
+            return;
+        System.out.println("\n=============================\n=== Most Allocating Tests ===\n=============================");
+
+        Collections.sort(measured, new Comparator<LiteTest>() {
+            @Override
+            public int compare(LiteTest a, LiteTest b) {
+                return Long.compare(b.probe.allocatedBytes, a.probe.allocatedBytes);
+            }
+        });
+        for(LiteTest test : measured.subList(0, Math.min(count, measured.size())))
+            System.out.println(LiteProbe.formatBytes(test.probe.allocatedBytes) + "\t" +
+                    shortClassName(test.getClassName()) + "." + test.testMethod.getName() + "\t" + test.probe.getSummary());
+    }
+
+    private void printTimings(int slowestCount){
+        System.out.println("\n=====================\n=== Slowest Tests ===\n=====================");
+
+        List<LiteTest> slowest = new ArrayList<>(queuedTests);
+        Collections.sort(slowest, new Comparator<LiteTest>() {
+            @Override
+            public int compare(LiteTest a, LiteTest b) {
+                return Long.compare(b.duration, a.duration);
+            }
+        });
+        for(LiteTest test : slowest.subList(0, Math.min(slowestCount, slowest.size())))
+            System.out.println(LiteTest.formatDuration(test.duration) + "\t" +
+                    shortClassName(test.getClassName()) + "." + test.testMethod.getName());
+
+        System.out.println("\n=======================\n=== Slowest Classes ===\n=======================");
+
+        final Map<String, Long> classTimes = new HashMap<>();
+        for(LiteTest test : queuedTests) {
+            Long classTime = classTimes.get(test.getClassName());
+            classTimes.put(test.getClassName(), (classTime == null ? 0 : classTime) + test.duration);
+        }
+        List<String> classNames = new ArrayList<>(classTimes.keySet());
+        Collections.sort(classNames, new Comparator<String>() {
+            @Override
+            public int compare(String a, String b) {
+                return Long.compare(classTimes.get(b), classTimes.get(a));
+            }
+        });
+        for(String className : classNames.subList(0, Math.min(slowestCount, classNames.size())))
+            System.out.println(LiteTest.formatDuration(classTimes.get(className)) + "\t" + shortClassName(className));
+    }
+
+    /**
+     * Writes the results of executeQueuedTests() to a JUnit style XML file, with one testsuite
+     * per test class, for CI servers and dashboards to pick up. What each test allocated, its
+     * CPU time, garbage collections and leaked threads are written as properties of its
+     * testcase. Tests skipped by setFailFast() are left out.
+     * @param path The file to write. Relative paths start at the project root.
+     */
+    public void exportXml(String path){
+        if(!hasExecuted) {
+            System.out.println("Tests have not yet been executed...");
+            return;
+        }
+        try {
+            LiteExport.writeXml(getResults(), Paths.get(System.getProperty("user.dir")).resolve(path));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
     /**
-     * Reset in preparation for new tests.
+     * Writes the results of executeQueuedTests() to a file with one JSON object per line,
+     * holding each test's class, method, reqId, status, duration and trace, and what it
+     * allocated, its CPU time, the garbage collections during it and the threads it leaked.
+     * Tests skipped by setFailFast() are left out.
+     * @param path The file to write. Relative paths start at the project root.
+     */
+    public void exportJson(String path){
+        if(!hasExecuted) {
+            System.out.println("Tests have not yet been executed...");
+            return;
+        }
+        try {
+            LiteExport.writeJsonLines(getResults(), Paths.get(System.getProperty("user.dir")).resolve(path));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes the results of executeQueuedTests() to a binary file that mergeShardResults() can
+     * combine with the files of the other shards. Tests skipped by setFailFast() are left out.
+     * @param path The file to write. Relative paths start at the project root.
+     */
+    public void saveShardResults(String path){
+        if(!hasExecuted) {
+            System.out.println("Tests have not yet been executed...");
+            return;
+        }
+        LiteShard results = shard == null ? new LiteShard(0, 1) : shard;
+        try {
+            results.write(Paths.get(System.getProperty("user.dir")).resolve(path), getResults());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Loads the result files that the shards of a run wrote with saveShardResults(), in place of
+     * executing any tests, so that one node can print and export the report of the whole run.
+     * Any shard of the run that is missing from the files is reported. If a history file has
+     * been set, the merged results are recorded in it, ready to hand to every node for
+     * balancing the next run.
+     * <br>
+     * The test classes must be on this node's classpath, since each result is attached to its
+     * test again. Results whose test can't be found are reported and left out.
+     * @param paths The files to merge. Relative paths start at the project root.
+     */
+    public void mergeShardResults(String... paths){
+        if(hasExecuted || !queuedTests.isEmpty()) {
+            System.out.println("!!TEST DRIVER ERROR!!\n*You must reset the TestDriver using reset() before you can merge shard results.");
+            return;
+        }
+        ClassLoader loader = isolated ? getRunLoader() : LiteDriver.class.getClassLoader();
+        Set<Integer> merged = new HashSet<>();
+        int shardCount = 0;
+        for(String path : paths) {
+            LiteShard results;
+            try {
+                results = LiteShard.read(Paths.get(System.getProperty("user.dir")).resolve(path));
+            } catch (IOException e) {
+                System.out.println("!!TEST DRIVER ERROR!!\n*Could not read shard results " + path);
+                e.printStackTrace();
+                continue;
+            }
+            if(!merged.add(results.index))
+                System.out.println("!!TEST DRIVER ERROR!!\n*Shard " + results.index + " was merged more than once.");
+            shardCount = Math.max(shardCount, results.count);
+            for(LiteResult result : results.results) {
+                try {
+                    Class<?> testClass = Class.forName(result.getClassName(), false, loader);
+                    LiteTest test = new LiteTest(testClass, LiteTarget.findTestMethod(testClass, result.getMethodName()));
+                    test.apply(result);
+                    queuedTests.add(test);
+                } catch (Exception | LinkageError e) {
+                    System.out.println("!!TEST DRIVER ERROR!!\n*Could not find the test " + result.getClassName() + "." + result.getMethodName());
+                }
+            }
+        }
+        for(int i = 0; i < shardCount; i++) {
+            if(!merged.contains(i))
+                System.out.println("!!TEST DRIVER ERROR!!\n*Shard " + i + " of " + shardCount + " is missing from the merged results.");
+        }
+        hasExecuted = true;
+        recordHistory();
+    }
+
+    private List<LiteResult> getResults(){
+        List<LiteResult> results = new ArrayList<>(queuedTests.size());
+        for(LiteTest test : queuedTests) {
+            if(!test.skipped)
+                results.add(test.toResult());
+        }
+        return results;
+    }
+
+    /**
+     * Reset in preparation for new tests. The class loaders the run's test classes were
+     * loaded with, if any, are closed so that they can be unloaded.
      */
     public void reset(){
         hasExecuted = false;
+        Set<ClassLoader> loaders = new HashSet<>();
+        for(LiteTest test : queuedTests) {
+            if(test.testClass.getClassLoader() instanceof LiteClassLoader)
+                loaders.add(test.testClass.getClassLoader());
+        }
         queuedTests.clear();
+        if(runLoader != null)
+            loaders.add(runLoader);
+        runLoader = null;
+        for(ClassLoader loader : loaders) {
+            try {
+                ((LiteClassLoader) loader).close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
     }
 
 
     // === HELPERS
     // ===========
+    private String shortClassName(String className){
+        return className.replace(cleanPath(localTestRoot, '.', true) + ".", "");
+    }
     private String trim(String stringToTrim, char charToRemove, boolean trimFront){
 
         if(trimFront) {
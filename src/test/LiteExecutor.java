@@ -0,0 +1,568 @@
+package test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs a batch of LiteTests, optionally on a work-stealing pool. The tests are split
+ * into units of work before anything runs:
+ * <ul>
+ *     <li>most tests are a unit of their own and may run on any worker</li>
+ *     <li>tests in a class marked @LiteClass(serial = true) share a single unit</li>
+ *     <li>tests marked @LiteTest(serial = true) are held back and run on the calling
+ *     thread after the pool has drained</li>
+ * </ul>
+ * Results are left on each LiteTest, so the caller can report on them in whatever
+ * order it keeps the tests in. Reporters are also told about each test as it finishes,
+ * after which the test's error is released. Identical failures within a batch share one
+ * LiteFailure.
+ * <br>
+ * Each test class gets one LiteFixture per batch, which handles the class's setup and
+ * teardown methods and decides which instance each test runs on.
+ * <br>
+ * The cases of a parameterized test are shared out among the workers as well.
+ * <br>
+ * With setVirtualThreads() the units run on threads of their own instead of on the pool,
+ * see executeVirtual().
+ * <br>
+ * With executePipelined() the batch isn't known up front: it arrives a class at a time from a
+ * queue, and each class's units are started as soon as it does.
+ * <br>
+ * Tests are started in the order the batch iterates in, see order(). With a failure limit
+ * set, the executor stops starting tests once that many have failed and marks the rest as
+ * skipped; tests already running are left to finish.
+ */
+class LiteExecutor {
+
+    /**
+     * Put on the queue given to executePipelined() once no more tests will be added to it.
+     */
+    static final List<LiteTest> END_OF_TESTS = Collections.unmodifiableList(new ArrayList<LiteTest>());
+
+    private int threadCount;
+    private List<LiteReporter> reporters;
+    private int testsRun;
+    private int testsFailed;
+    private int maxFailures = 0;
+    private volatile boolean stopped;
+    private Map<LiteFailure, LiteFailure> failures;
+    private int maxVirtualThreads = 0;
+    private Properties benchmarkBaseline;
+    private double benchmarkTolerance;
+
+    LiteExecutor(int threadCount, List<LiteReporter> reporters) {
+        this.threadCount = threadCount;
+        this.reporters = reporters;
+    }
+
+    /**
+     * Stops the batch once this many tests have failed. 0 runs every test.
+     */
+    void setMaxFailures(int maxFailures) {
+        this.maxFailures = maxFailures;
+    }
+
+    /**
+     * Runs each unit of work on its own virtual thread instead of on the pool, with at most
+     * maxConcurrent of them running at once. 0 goes back to the pool.
+     */
+    void setVirtualThreads(int maxConcurrent) {
+        this.maxVirtualThreads = maxConcurrent;
+    }
+
+    /**
+     * Gives each benchmark its baseline and tolerance before it runs, see
+     * LiteDriver.setBenchmarkBaseline(). Pass null for none.
+     */
+    void setBenchmarkBaseline(Properties baseline, double tolerance) {
+        this.benchmarkBaseline = baseline;
+        this.benchmarkTolerance = tolerance;
+    }
+
+    /**
+     * Sorts the tests into the order they should be started in. Orders other than
+     * ALPHABETICAL put the tests that failed last time first, then go by how long each test
+     * took last time, counting tests that haven't run yet as average. Ties, and every test
+     * when there is no history, keep their alphabetical order.
+     */
+    static List<LiteTest> order(Collection<LiteTest> tests, final LiteOrder order, final LiteHistory history) {
+        List<LiteTest> ordered = new ArrayList<>(tests);
+        if(order == LiteOrder.ALPHABETICAL || history == null)
+            return ordered;
+        final long unknown = history.averageDuration();
+        Collections.sort(ordered, new Comparator<LiteTest>() {
+            @Override
+            public int compare(LiteTest a, LiteTest b) {
+                boolean aFailed = history.hasFailed(a);
+                if(aFailed != history.hasFailed(b))
+                    return aFailed ? -1 : 1;
+                long aDuration = history.getDuration(a);
+                long bDuration = history.getDuration(b);
+                int diff = Long.compare(aDuration < 0 ? unknown : aDuration, bDuration < 0 ? unknown : bDuration);
+                return order == LiteOrder.LONGEST_FIRST ? -diff : diff;
+            }
+        });
+        return ordered;
+    }
+
+    void execute(Collection<LiteTest> tests) {
+        long start = System.nanoTime();
+        testsRun = 0;
+        testsFailed = 0;
+        stopped = false;
+        failures = new ConcurrentHashMap<>();
+        prepare(tests);
+
+        if(maxVirtualThreads > 0) {
+            executeVirtual(tests);
+        }
+        else if(threadCount <= 1) {
+            for(LiteTest test : tests)
+                runTest(test);
+        }
+        else {
+            executeParallel(tests);
+        }
+        finished(start);
+    }
+
+    /**
+     * Runs tests as they arrive on the queue, one list of tests at a time, until END_OF_TESTS
+     * is taken from it. Each list gets fixtures of its own, so a class should arrive in one
+     * list. On the pool each list's units are submitted as soon as it arrives, and without
+     * one its tests run there and then on the calling thread. Either way serial tests are
+     * held back until the queue has ended and the pool has drained.
+     * @param tests The tests to run before any from the queue. Every test taken from the
+     *              queue is added to it, and one it already holds is not run again, so once
+     *              this returns it holds every test that ran.
+     */
+    void executePipelined(Collection<LiteTest> tests, BlockingQueue<List<LiteTest>> batches) {
+        long start = System.nanoTime();
+        testsRun = 0;
+        testsFailed = 0;
+        stopped = false;
+        failures = new ConcurrentHashMap<>();
+
+        List<LiteTest> serialTests = new ArrayList<>();
+        List<ForkJoinTask<?>> submitted = new ArrayList<>();
+        ForkJoinPool pool = threadCount > 1 ? newPool() : null;
+        try {
+            List<LiteTest> batch = new ArrayList<>(tests);
+            while(true) {
+                prepare(batch);
+                if(pool == null) {
+                    for(LiteTest test : batch)
+                        runTest(test);
+                }
+                else {
+                    for(List<LiteTest> unit : units(batch, serialTests))
+                        submitted.add(submit(pool, unit));
+                }
+                List<LiteTest> next = batches.take();
+                if(next == END_OF_TESTS)
+                    break;
+                batch = new ArrayList<>(next.size());
+                for(LiteTest test : next) {
+                    if(tests.add(test))
+                        batch.add(test);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for(ForkJoinTask<?> task : submitted)
+                task.join();
+            if(pool != null)
+                pool.shutdown();
+        }
+
+        for(LiteTest test : serialTests)
+            runTest(test);
+        finished(start);
+    }
+
+    /**
+     * Gives the tests their fixtures, one for each class among them, and the benchmarks
+     * their baselines.
+     */
+    private void prepare(Collection<LiteTest> tests) {
+        Map<Class<?>, LiteFixture> fixtures = new HashMap<>();
+        for(LiteTest test : tests) {
+            LiteFixture fixture = fixtures.get(test.testClass);
+            if(fixture == null) {
+                fixture = new LiteFixture(test.testClass);
+                fixtures.put(test.testClass, fixture);
+            }
+            fixture.expect();
+            test.fixture = fixture;
+            if(test.bench != null && benchmarkBaseline != null) {
+                String baseline = benchmarkBaseline.getProperty(test.getClassName() + "#" + test.testMethod.getName());
+                test.bench.baseline = baseline == null ? 0 : Double.parseDouble(baseline);
+                test.bench.tolerance = benchmarkTolerance;
+            }
+        }
+    }
+
+    /**
+     * Splits the tests into forkCount partitions and runs each partition in a child JVM (see
+     * LiteFork) with this executor's thread count. The tests of a class always stay together,
+     * and the classes are dealt out longest first to whichever partition has the least work,
+     * going by how long their tests took last time. Results are copied back onto the tests
+     * as the children stream them in.
+     * @param history The durations to balance by. Without one every test counts the same.
+     */
+    void executeForked(Collection<LiteTest> tests, int forkCount, LiteHistory history) {
+        long start = System.nanoTime();
+        testsRun = 0;
+        testsFailed = 0;
+        failures = new ConcurrentHashMap<>();
+
+        List<Thread> readers = new ArrayList<>();
+        for(final List<LiteTest> partition : partition(tests, forkCount, history)) {
+            if(partition.isEmpty())
+                continue;
+            final Process fork;
+            try {
+                fork = startFork(partition);
+            } catch (IOException e) {
+                for(LiteTest test : partition) {
+                    test.fail(e);
+                    finished(test);
+                }
+                continue;
+            }
+            Thread reader = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    readResults(fork, partition);
+                }
+            }, "LiteFork-reader");
+            reader.start();
+            readers.add(reader);
+        }
+
+        try {
+            for(Thread reader : readers)
+                reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            finished(start);
+        }
+    }
+
+    private void runTest(LiteTest test) {
+        if(stopped) {
+            test.skip();
+            return;
+        }
+        if(!reporters.isEmpty()) {
+            synchronized (this) {
+                for(LiteReporter reporter : reporters)
+                    reporter.testStarted(test.getClassName(), test.testMethod.getName());
+            }
+        }
+
+        if(test.parameterized)
+            runCases(test);
+        else
+            test.execute();
+        finished(test);
+    }
+
+    /**
+     * Runs the cases of a parameterized test. When the test is running on a worker of the
+     * pool, the other workers are offered a share of its cases, unless the test or its class
+     * is serial.
+     */
+    private void runCases(final LiteTest test) {
+        if(!test.openCases())
+            return;
+        List<ForkJoinTask<?>> helpers = new ArrayList<>();
+        if(threadCount > 1 && !test.serial && !test.classSerial && ForkJoinTask.inForkJoinPool()) {
+            for(int i = 1; i < threadCount; i++) {
+                helpers.add(ForkJoinTask.adapt(new Runnable() {
+                    @Override
+                    public void run() {
+                        test.runCases(reporters, LiteExecutor.this);
+                    }
+                }).fork());
+            }
+        }
+        test.runCases(reporters, this);
+        for(ForkJoinTask<?> helper : helpers)
+            helper.join();
+        test.closeCases();
+    }
+
+    private synchronized void finished(LiteTest test) {
+        test.release(failures);
+        testsRun++;
+        if(!test.passed)
+            testsFailed++;
+        if(maxFailures > 0 && testsFailed >= maxFailures)
+            stopped = true;
+        if(!reporters.isEmpty()) {
+            LiteResult result = test.toResult();
+            for(LiteReporter reporter : reporters)
+                reporter.testFinished(result);
+        }
+    }
+
+    private synchronized void finished(long start) {
+        for(LiteReporter reporter : reporters)
+            reporter.runFinished(testsRun, testsFailed, System.nanoTime() - start);
+    }
+
+    /**
+     * Splits the tests into count partitions, keeping the tests of a class together and dealing
+     * the classes out longest first to whichever partition has the least work. The split only
+     * depends on the tests, their order and the history, so it comes out the same every time.
+     * @param history The durations to balance by. Without one every test counts the same.
+     */
+    static List<List<LiteTest>> partition(Collection<LiteTest> tests, int count, LiteHistory history) {
+        Map<Class<?>, List<LiteTest>> byClass = new LinkedHashMap<>();
+        final Map<Class<?>, Long> weights = new HashMap<>();
+        long unknown = history == null ? 1 : history.averageDuration();
+        for(LiteTest test : tests) {
+            List<LiteTest> classTests = byClass.get(test.testClass);
+            if(classTests == null) {
+                classTests = new ArrayList<>();
+                byClass.put(test.testClass, classTests);
+                weights.put(test.testClass, 0L);
+            }
+            classTests.add(test);
+            long duration = history == null ? -1 : history.getDuration(test);
+            weights.put(test.testClass, weights.get(test.testClass) + (duration < 0 ? unknown : duration));
+        }
+
+        List<Class<?>> classes = new ArrayList<>(byClass.keySet());
+        Collections.sort(classes, new Comparator<Class<?>>() {
+            @Override
+            public int compare(Class<?> a, Class<?> b) {
+                return Long.compare(weights.get(b), weights.get(a));
+            }
+        });
+
+        List<List<LiteTest>> partitions = new ArrayList<>();
+        long[] loads = new long[Math.max(1, count)];
+        for(int i = 0; i < loads.length; i++)
+            partitions.add(new ArrayList<LiteTest>());
+        for(Class<?> testClass : classes) {
+            int lightest = 0;
+            for(int i = 1; i < loads.length; i++) {
+                if(loads[i] < loads[lightest])
+                    lightest = i;
+            }
+            partitions.get(lightest).addAll(byClass.get(testClass));
+            loads[lightest] += weights.get(testClass);
+        }
+        return partitions;
+    }
+
+    private Process startFork(List<LiteTest> partition) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                LiteFork.class.getName(), String.valueOf(threadCount));
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        Process fork = builder.start();
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fork.getOutputStream()))) {
+            out.writeInt(partition.size());
+            for(LiteTest test : partition) {
+                out.writeUTF(test.getClassName());
+                out.writeUTF(test.testMethod.getName());
+            }
+        } catch (IOException | RuntimeException e) {
+            fork.destroy();     // nobody will read its results, so don't leave it running
+            throw e;
+        }
+        return fork;
+    }
+
+    /**
+     * Copies each result a child sends back onto its test. Any test the child never reported,
+     * because it crashed or was killed, is failed once the child has exited.
+     */
+    private void readResults(Process fork, List<LiteTest> partition) {
+        Map<String, LiteTest> pending = new HashMap<>();
+        for(LiteTest test : partition)
+            pending.put(test.getClassName() + "#" + test.testMethod.getName(), test);
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(fork.getInputStream()))) {
+            while(in.readBoolean()) {
+                LiteResult result = LiteResult.read(in);
+                LiteTest test = pending.remove(result.getClassName() + "#" + result.getMethodName());
+                if(test == null) {
+                    reportCase(result);
+                    continue;
+                }
+                if(!reporters.isEmpty()) {
+                    synchronized (this) {
+                        for(LiteReporter reporter : reporters)
+                            reporter.testStarted(test.getClassName(), test.testMethod.getName());
+                    }
+                }
+                test.apply(result);
+                finished(test);
+            }
+        } catch (IOException e) {
+            // the child died part way through; whatever is still pending is failed below
+        }
+
+        int exitCode;
+        try {
+            exitCode = fork.waitFor();
+        } catch (InterruptedException e) {
+            fork.destroy();
+            Thread.currentThread().interrupt();
+            exitCode = -1;
+        }
+        for(LiteTest test : pending.values()) {
+            test.fail(new IllegalStateException("Forked JVM exited with code " + exitCode + " before the test finished"));
+            finished(test);
+        }
+    }
+
+    /**
+     * Passes on the result of one case of a parameterized test that ran in a child. The test
+     * itself is reported when its own result arrives.
+     */
+    private synchronized void reportCase(LiteResult result) {
+        for(LiteReporter reporter : reporters) {
+            reporter.testStarted(result.getClassName(), result.getMethodName());
+            reporter.testFinished(result);
+        }
+    }
+
+    /**
+     * Splits the tests into units of work, leaving out the serial tests, which are added to
+     * serialTests instead.
+     */
+    private List<List<LiteTest>> units(Collection<LiteTest> tests, List<LiteTest> serialTests) {
+        List<List<LiteTest>> units = new ArrayList<>();
+        Map<Class<?>, List<LiteTest>> serialClasses = new LinkedHashMap<>();
+
+        for(LiteTest test : tests) {
+            if(test.serial) {
+                serialTests.add(test);
+            }
+            else if(test.classSerial) {
+                List<LiteTest> unit = serialClasses.get(test.testClass);
+                if(unit == null) {
+                    unit = new ArrayList<>();
+                    serialClasses.put(test.testClass, unit);
+                    units.add(unit);
+                }
+                unit.add(test);
+            }
+            else {
+                units.add(Collections.singletonList(test));
+            }
+        }
+        return units;
+    }
+
+    private void executeParallel(Collection<LiteTest> tests) {
+        List<LiteTest> serialTests = new ArrayList<>();
+        List<List<LiteTest>> units = units(tests, serialTests);
+
+        ForkJoinPool pool = newPool();
+        try {
+            List<ForkJoinTask<?>> submitted = new ArrayList<>(units.size());
+            for(List<LiteTest> unit : units)
+                submitted.add(submit(pool, unit));
+            for(ForkJoinTask<?> task : submitted)
+                task.join();
+        } finally {
+            pool.shutdown();
+        }
+
+        for(LiteTest test : serialTests)
+            runTest(test);
+    }
+
+    private ForkJoinPool newPool() {
+        return new ForkJoinPool(threadCount, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+            @Override
+            public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                worker.setName("LiteUnit-worker-" + worker.getPoolIndex());    // not taken for a thread leaked by a test
+                return worker;
+            }
+        }, null, false);
+    }
+
+    private ForkJoinTask<?> submit(ForkJoinPool pool, final List<LiteTest> unit) {
+        return pool.submit(new Runnable() {
+            @Override
+            public void run() {
+                for(LiteTest test : unit)
+                    runTest(test);
+            }
+        });
+    }
+
+    /**
+     * Starts a thread per unit of work from LiteVirtualThreads, waiting for a permit before each
+     * so that no more than maxVirtualThreads run at once. Pinned virtual threads are recorded
+     * against their tests while the units run. Serial tests run on the calling thread after.
+     */
+    private void executeVirtual(Collection<LiteTest> tests) {
+        List<LiteTest> serialTests = new ArrayList<>();
+        List<List<LiteTest>> units = units(tests, serialTests);
+
+        LiteVirtualThreads virtualThreads = new LiteVirtualThreads();
+        virtualThreads.startRecording();
+        ThreadFactory factory = LiteVirtualThreads.factory();
+        final Semaphore permits = new Semaphore(maxVirtualThreads);
+        List<Thread> started = new ArrayList<>(units.size());
+        try {
+            for(final List<LiteTest> unit : units) {
+                permits.acquire();
+                Thread thread = factory.newThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            for(LiteTest test : unit)
+                                runTest(test);
+                        } finally {
+                            permits.release();
+                        }
+                    }
+                });
+                thread.start();
+                started.add(thread);
+            }
+            for(Thread thread : started)
+                thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            virtualThreads.stopRecording(tests);
+        }
+
+        for(LiteTest test : serialTests)
+            runTest(test);
+    }
+}
@@ -0,0 +1,220 @@
+package test;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Writes test results in formats that other tools can read: JUnit style XML for CI servers
+ * and JSON lines for anything else. Everything goes through one large buffered writer and
+ * values are escaped straight into it, so exporting costs little more than the I/O itself.
+ */
+class LiteExport {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private LiteExport() {}
+
+    /**
+     * Writes JUnit style XML, with one testsuite per test class.
+     * @param results The results to write, grouped by class name.
+     */
+    static void writeXml(List<LiteResult> results, Path file) throws IOException {
+        Map<String, List<LiteResult>> byClass = new LinkedHashMap<>();
+        int failures = 0;
+        long duration = 0;
+        for(LiteResult result : results) {
+            List<LiteResult> classResults = byClass.get(result.getClassName());
+            if(classResults == null) {
+                classResults = new ArrayList<>();
+                byClass.put(result.getClassName(), classResults);
+            }
+            classResults.add(result);
+            if(!result.isPassed())
+                failures++;
+            duration += result.getDuration();
+        }
+
+        try (Writer out = open(file)) {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            out.write("<testsuites tests=\"" + results.size() + "\" failures=\"" + failures +
+                    "\" time=\"" + seconds(duration) + "\">\n");
+
+            for(Map.Entry<String, List<LiteResult>> suite : byClass.entrySet()) {
+                int suiteFailures = 0;
+                long suiteDuration = 0;
+                for(LiteResult result : suite.getValue()) {
+                    if(!result.isPassed())
+                        suiteFailures++;
+                    suiteDuration += result.getDuration();
+                }
+
+                out.write("  <testsuite name=\"");
+                escapeXml(suite.getKey(), out);
+                out.write("\" tests=\"" + suite.getValue().size() + "\" failures=\"" + suiteFailures +
+                        "\" time=\"" + seconds(suiteDuration) + "\">\n");
+
+                for(LiteResult result : suite.getValue()) {
+                    out.write("    <testcase classname=\"");
+                    escapeXml(result.getClassName(), out);
+                    out.write("\" name=\"");
+                    escapeXml(result.getMethodName(), out);
+                    out.write("\" time=\"" + seconds(result.getDuration()) + "\"");
+                    boolean measured = result.getGcCount() >= 0;
+                    if(result.isPassed() && result.getReqId().equals("") && !measured) {
+                        out.write("/>\n");
+                        continue;
+                    }
+                    out.write(">\n");
+                    if(!result.getReqId().equals("") || measured) {
+                        out.write("      <properties>");
+                        if(!result.getReqId().equals("")) {
+                            out.write("<property name=\"reqId\" value=\"");
+                            escapeXml(result.getReqId(), out);
+                            out.write("\"/>");
+                        }
+                        if(measured)
+                            writeUsageXml(result, out);
+                        out.write("</properties>\n");
+                    }
+                    if(!result.isPassed()) {
+                        out.write("      <failure type=\"");
+                        escapeXml(firstLine(result.getTrace()), out);
+                        out.write("\">");
+                        escapeXml(result.getTrace(), out);
+                        out.write("</failure>\n");
+                    }
+                    out.write("    </testcase>\n");
+                }
+                out.write("  </testsuite>\n");
+            }
+            out.write("</testsuites>\n");
+        }
+    }
+
+    /**
+     * Writes one JSON object per line, one line per test.
+     */
+    static void writeJsonLines(List<LiteResult> results, Path file) throws IOException {
+        try (Writer out = open(file)) {
+            for(LiteResult result : results) {
+                out.write("{\"class\":");
+                escapeJson(result.getClassName(), out);
+                out.write(",\"method\":");
+                escapeJson(result.getMethodName(), out);
+                out.write(",\"reqId\":");
+                escapeJson(result.getReqId(), out);
+                out.write(",\"status\":\"" + (result.isPassed() ? "SUCCESS" : "FAILURE") + "\"");
+                out.write(",\"durationNanos\":" + result.getDuration());
+                out.write(",\"timeStamp\":");
+                escapeJson(result.getTimeStamp(), out);
+                out.write(",\"trace\":");
+                escapeJson(result.getTrace(), out);
+                if(result.getGcCount() >= 0) {
+                    out.write(",\"allocatedBytes\":" + orNull(result.getAllocatedBytes()));
+                    out.write(",\"cpuTimeNanos\":" + orNull(result.getCpuTime()));
+                    out.write(",\"gcCount\":" + result.getGcCount());
+                    out.write(",\"gcTimeMillis\":" + result.getGcTime());
+                    out.write(",\"leakedThreads\":[");
+                    for(int i = 0; i < result.getLeakedThreads().size(); i++) {
+                        if(i > 0)
+                            out.write(',');
+                        escapeJson(result.getLeakedThreads().get(i), out);
+                    }
+                    out.write("]");
+                }
+                out.write("}\n");
+            }
+        }
+    }
+
+    private static void writeUsageXml(LiteResult result, Writer out) throws IOException {
+        if(result.getAllocatedBytes() >= 0)
+            out.write("<property name=\"allocatedBytes\" value=\"" + result.getAllocatedBytes() + "\"/>");
+        if(result.getCpuTime() >= 0)
+            out.write("<property name=\"cpuTimeNanos\" value=\"" + result.getCpuTime() + "\"/>");
+        out.write("<property name=\"gcCount\" value=\"" + result.getGcCount() + "\"/>");
+        out.write("<property name=\"gcTimeMillis\" value=\"" + result.getGcTime() + "\"/>");
+        if(!result.getLeakedThreads().isEmpty()) {
+            out.write("<property name=\"leakedThreads\" value=\"");
+            for(int i = 0; i < result.getLeakedThreads().size(); i++) {
+                if(i > 0)
+                    out.write(", ");
+                escapeXml(result.getLeakedThreads().get(i), out);
+            }
+            out.write("\"/>");
+        }
+    }
+
+    private static String orNull(long value) {
+        return value < 0 ? "null" : String.valueOf(value);
+    }
+
+    private static Writer open(Path file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1000000000.0);
+    }
+
+    private static String firstLine(String text) {
+        if(text == null)
+            return "";
+        int end = text.indexOf('\n');
+        return end < 0 ? text : text.substring(0, end);
+    }
+
+    private static void escapeXml(String text, Writer out) throws IOException {
+        if(text == null)
+            return;
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&': out.write("&amp;"); break;
+                case '<': out.write("&lt;"); break;
+                case '>': out.write("&gt;"); break;
+                case '"': out.write("&quot;"); break;
+                case '\'': out.write("&apos;"); break;
+                default:
+                    if(c < 0x20 && c != '\n' && c != '\r' && c != '\t')
+                        out.write('?');     // not allowed anywhere in XML 1.0
+                    else
+                        out.write(c);
+            }
+        }
+    }
+
+    private static void escapeJson(String text, Writer out) throws IOException {
+        if(text == null) {
+            out.write("null");
+            return;
+        }
+        out.write('"');
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"': out.write("\\\""); break;
+                case '\\': out.write("\\\\"); break;
+                case '\n': out.write("\\n"); break;
+                case '\r': out.write("\\r"); break;
+                case '\t': out.write("\\t"); break;
+                default:
+                    if(c < 0x20)
+                        out.write(String.format("\\u%04x", (int) c));
+                    else
+                        out.write(c);
+            }
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,157 @@
+package test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A compact record of why a test failed, kept in place of the Throwable once the test has been
+ * reported. Only the frames above LiteUnit's own are kept, at most MAX_FRAMES of them, and the
+ * text printed for the failure is only built the first time it is asked for.
+ * <br>
+ * Failures are compared by their type, message and frames, so that identical failures across
+ * tests, such as every test in a class whose setup failed, can share a single record through
+ * intern(). Which test failed isn't part of the record; it is passed in when the short form is
+ * asked for.
+ */
+class LiteFailure {
+
+    static final int MAX_FRAMES = 64;
+
+    private String type;
+    private String message;
+    private StackTraceElement[] frames;     // null for a failure rebuilt from text
+    private int omittedFrames;
+    private int hash;
+
+    private String exceptionText;       // only set on a failure rebuilt from text
+    private String exceptionFor;        // the test method the short form below was made for
+    private String exceptionView;
+    private String traceText;
+
+    private LiteFailure() {}
+
+    /**
+     * Records the error a test method failed with. The frames are cut off at the first frame
+     * of LiteTest, below which there is only LiteUnit, and method handle frames are dropped.
+     */
+    static LiteFailure capture(Throwable error) {
+        LiteFailure failure = new LiteFailure();
+        failure.type = error.getClass().getName();
+        failure.message = error.getMessage();
+
+        StackTraceElement[] stackTrace = error.getStackTrace();
+        StackTraceElement[] kept = new StackTraceElement[Math.min(stackTrace.length, MAX_FRAMES)];
+        int count = 0;
+        for(StackTraceElement element : stackTrace) {
+            if(element.getClassName().startsWith(LiteTest.class.getName()))
+                break;
+            if(element.getClassName().startsWith("java.lang.invoke."))
+                continue;
+            if(count == kept.length)
+                failure.omittedFrames++;
+            else
+                kept[count++] = element;
+        }
+        failure.frames = count == kept.length ? kept : Arrays.copyOf(kept, count);
+        failure.hash = failure.computeHash();
+        return failure;
+    }
+
+    /**
+     * Rebuilds a failure from its printed text, such as a result sent back by a forked JVM.
+     */
+    static LiteFailure fromText(String exceptionText, String traceText) {
+        LiteFailure failure = new LiteFailure();
+        failure.exceptionText = exceptionText;
+        failure.traceText = traceText;
+        failure.hash = failure.computeHash();
+        return failure;
+    }
+
+    /**
+     * Returns the record in the pool that is equal to this one, adding this one if there isn't.
+     */
+    LiteFailure intern(Map<LiteFailure, LiteFailure> pool) {
+        LiteFailure pooled = pool.putIfAbsent(this, this);
+        return pooled == null ? this : pooled;
+    }
+
+    /**
+     * The short form of the failure: its type and message, the frames in the given test method
+     * and the frame it was thrown from. The last form made is kept, since a shared record is
+     * usually asked for the same test more than once in a row.
+     */
+    synchronized String getException(String testMethodName) {
+        if(exceptionText != null)
+            return exceptionText;
+        if(testMethodName.equals(exceptionFor))
+            return exceptionView;
+        StringBuilder builder = appendHeader(new StringBuilder());
+        boolean thrownFromShown = false;
+        for(int i = 0; i < frames.length; i++) {
+            if(frames[i].getMethodName().contains(testMethodName)) {
+                builder.append(frames[i]).append("\n");
+                thrownFromShown |= i == 0;
+            }
+        }
+        if(frames.length > 0 && !thrownFromShown)
+            builder.append(frames[0]).append("\n");
+        exceptionFor = testMethodName;
+        exceptionView = builder.substring(0, builder.length() - 1);
+        return exceptionView;
+    }
+
+    /**
+     * The full form of the failure: its type and message and every frame that was kept.
+     */
+    synchronized String getTrace() {
+        if(traceText != null)
+            return traceText;
+        StringBuilder builder = appendHeader(new StringBuilder());
+        for(StackTraceElement frame : frames)
+            builder.append(frame).append("\n");
+        if(omittedFrames > 0)
+            builder.append("... ").append(omittedFrames).append(" more frames\n");
+        traceText = builder.substring(0, builder.length() - 1);
+        return traceText;
+    }
+
+    private StringBuilder appendHeader(StringBuilder builder) {
+        builder.append(type).append("\n");
+        if(message != null && !message.equals(""))
+            builder.append(message).append("\n");
+        return builder;
+    }
+
+    private int computeHash() {
+        if(frames == null)
+            return 31 * String.valueOf(exceptionText).hashCode() + String.valueOf(traceText).hashCode();
+        int result = type.hashCode();
+        result = 31 * result + (message == null ? 0 : message.hashCode());
+        result = 31 * result + Arrays.hashCode(frames);
+        return result;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if(this == other)
+            return true;
+        if(!(other instanceof LiteFailure))
+            return false;
+        LiteFailure failure = (LiteFailure) other;
+        if(hash != failure.hash || (frames == null) != (failure.frames == null))
+            return false;
+        if(frames == null)
+            return String.valueOf(exceptionText).equals(String.valueOf(failure.exceptionText)) &&
+                    String.valueOf(traceText).equals(String.valueOf(failure.traceText));
+        return type.equals(failure.type) &&
+                omittedFrames == failure.omittedFrames &&
+                (message == null ? failure.message == null : message.equals(failure.message)) &&
+                Arrays.equals(frames, failure.frames);
+    }
+}
@@ -0,0 +1,70 @@
+package test;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * A LiteReporter that writes one line per test to a file as the tests finish, with the full
+ * trace of each failure. The file is flushed after every failure and closed when the run
+ * finishes, so a crashed or killed run still leaves a readable log behind.
+ */
+public class LiteFileReporter implements LiteReporter {
+
+    private String path;
+    private BufferedWriter writer;
+
+    /**
+     * @param path The file to write to. It is replaced at the start of every run.
+     */
+    public LiteFileReporter(String path) {
+        this.path = path;
+    }
+
+    @Override
+    public void testStarted(String className, String methodName) {
+        if(writer != null)
+            return;
+        try {
+            writer = Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void testFinished(LiteResult result) {
+        if(writer == null)
+            return;
+        try {
+            writer.write(result.getTimeStamp() + "\t" + (result.isPassed() ? "SUCCESS" : "FAILURE") + "\t" +
+                    LiteTest.formatDuration(result.getDuration()) + "\t" +
+                    result.getClassName() + "." + result.getMethodName());
+            writer.newLine();
+            if(!result.isPassed()) {
+                writer.write(result.getTrace());
+                writer.newLine();
+                writer.flush();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void runFinished(int testsRun, int testsFailed, long duration) {
+        if(writer == null)
+            return;
+        try {
+            writer.write("Tests Run: " + testsRun + ", Tests Failed: " + testsFailed +
+                    ", Time: " + LiteTest.formatDuration(duration));
+            writer.newLine();
+            writer.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        writer = null;
+    }
+}
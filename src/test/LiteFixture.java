@@ -0,0 +1,175 @@
+package test;
+
+import test.annotations.LiteAfter;
+import test.annotations.LiteAfterClass;
+import test.annotations.LiteBefore;
+import test.annotations.LiteBeforeClass;
+import test.annotations.LiteClass;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The setup and teardown for one test class during one run. It creates the instances the
+ * tests run on, calls the @LiteBefore and @LiteAfter methods around each test, and calls
+ * the @LiteBeforeClass methods before the first test and @LiteAfterClass methods after
+ * the last one. The executor tells it how many tests to expect, so it knows when the last
+ * one has finished.
+ * <br>
+ * Class setup is done under the fixture's lock, so tests that start on other threads wait
+ * for it to finish before they run. Test instances are created outside of it. Once the last
+ * expected test has finished the fixture starts over, so a test run by itself again sets the
+ * class up and tears it down again.
+ */
+class LiteFixture {
+
+    private static final MethodType INSTANCE_METHOD = MethodType.methodType(void.class, Object.class);
+
+    private Class<?> testClass;
+    private boolean shared;
+    private MethodHandle constructor;
+    private List<MethodHandle> before;
+    private List<MethodHandle> after;
+    private List<MethodHandle> beforeClass;
+    private List<MethodHandle> afterClass;
+
+    private Throwable lookupError;
+    private int remaining = 0;
+    private boolean setUp = false;
+    private Throwable setUpError;
+    private Object sharedInstance;
+
+    /**
+     * Looks up the class's constructor and lifecycle methods. If that fails, the error is
+     * kept and handed to every test in the class instead of an instance.
+     */
+    LiteFixture(Class<?> testClass) {
+        this.testClass = testClass;
+        LiteClass classAnnotation = testClass.getAnnotation(LiteClass.class);
+        shared = classAnnotation != null && classAnnotation.sharedInstance();
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            constructor = lookup.findConstructor(testClass, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+            before = find(lookup, LiteBefore.class);
+            after = find(lookup, LiteAfter.class);
+            beforeClass = find(lookup, LiteBeforeClass.class);
+            afterClass = find(lookup, LiteAfterClass.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            lookupError = e;
+        }
+        setUpError = lookupError;
+    }
+
+    /**
+     * Adds one to the number of tests that will run against this fixture.
+     */
+    synchronized void expect() {
+        remaining++;
+    }
+
+    /**
+     * Returns the instance the next test should run on, setting up the class first if this
+     * is the first test. Every test in a class whose setup failed gets the same error.
+     */
+    Object enter() throws Throwable {
+        Object instance = setUpClass();
+        if(shared)
+            return instance;
+        return (Object) constructor.invokeExact();
+    }
+
+    /**
+     * Sets up the class if this is the first test, and returns the shared instance, if any.
+     */
+    private synchronized Object setUpClass() throws Throwable {
+        if(!setUp && setUpError == null) {
+            setUp = true;
+            try {
+                if(shared)
+                    sharedInstance = (Object) constructor.invokeExact();
+                for(MethodHandle method : beforeClass)
+                    method.invokeExact(sharedInstance);     // static methods ignore the instance
+            } catch (Throwable e) {
+                setUpError = e;
+            }
+        }
+        if(setUpError != null)
+            throw setUpError;
+        return sharedInstance;
+    }
+
+    void before(Object testInstance) throws Throwable {
+        for(MethodHandle method : before)
+            method.invokeExact(testInstance);
+    }
+
+    /**
+     * Runs every @LiteAfter method, even if an earlier one threw, and then rethrows the
+     * first error.
+     */
+    void after(Object testInstance) throws Throwable {
+        Throwable first = null;
+        for(MethodHandle method : after) {
+            try {
+                method.invokeExact(testInstance);
+            } catch (Throwable e) {
+                if(first == null)
+                    first = e;
+            }
+        }
+        if(first != null)
+            throw first;
+    }
+
+    /**
+     * Marks one test as finished, and tears the class down once the last one is done, after
+     * which the fixture is ready to set the class up again. Errors from teardown are printed,
+     * since no test is left to blame them on.
+     */
+    synchronized void exit() {
+        if(remaining > 0)
+            remaining--;
+        if(remaining > 0)
+            return;
+        if(setUp && setUpError == null) {
+            for(MethodHandle method : afterClass) {
+                try {
+                    method.invokeExact(sharedInstance);
+                } catch (Throwable e) {
+                    System.out.println("!!TEST DRIVER ERROR!!\n*@LiteAfterClass failed for " + testClass.getName());
+                    e.printStackTrace();
+                }
+            }
+        }
+        setUp = false;
+        setUpError = lookupError;
+        sharedInstance = null;
+    }
+
+    private List<MethodHandle> find(MethodHandles.Lookup lookup, Class<? extends Annotation> annotation)
+            throws ReflectiveOperationException {
+        boolean classLevel = annotation == LiteBeforeClass.class || annotation == LiteAfterClass.class;
+        List<MethodHandle> found = new ArrayList<>();
+        for(Method method : testClass.getMethods()) {
+            if(!method.isAnnotationPresent(annotation) || method.getParameterTypes().length != 0)
+                continue;
+            boolean isStatic = Modifier.isStatic(method.getModifiers());
+            if(classLevel && !isStatic && !shared)
+                throw new IllegalStateException("@" + annotation.getSimpleName() + " method " + method.getName() +
+                        " must be static unless " + testClass.getName() + " is marked @LiteClass(sharedInstance = true)");
+            MethodHandle handle = lookup.unreflect(method);
+            if(isStatic)
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            found.add(handle.asType(INSTANCE_METHOD));
+        }
+        return found;
+    }
+}
@@ -0,0 +1,79 @@
+package test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The entry point of a child JVM started by LiteDriver.executeQueuedTestsInForks(). It reads
+ * the tests to run from stdin, runs them, and streams each result back over stdout as soon
+ * as it finishes. Anything the tests print is sent to stderr instead, so it can't corrupt
+ * the results.
+ * <br>
+ * This class is only public so that the JVM can launch it.
+ */
+public final class LiteFork {
+
+    private LiteFork() {}
+
+    /**
+     * @param args The number of threads to run the tests on, which defaults to 1.
+     */
+    public static void main(String[] args) throws IOException {
+        int threadCount = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        final DataOutputStream results = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        System.setOut(System.err);
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+        int count = in.readInt();
+        List<LiteTest> tests = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            String className = in.readUTF();
+            String methodName = in.readUTF();
+            try {
+                Class<?> testClass = Class.forName(className);
+                tests.add(new LiteTest(testClass, LiteTarget.findTestMethod(testClass, methodName)));
+            } catch (Exception | LinkageError e) {
+                e.printStackTrace();
+            }
+        }
+
+        LiteReporter streamResults = new LiteReporter() {
+            @Override
+            public void testStarted(String className, String methodName) {
+            }
+
+            @Override
+            public void testFinished(LiteResult result) {
+                try {
+                    results.writeBoolean(true);
+                    result.write(results);
+                    results.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public void runFinished(int testsRun, int testsFailed, long duration) {
+                try {
+                    results.writeBoolean(false);
+                    results.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        new LiteExecutor(threadCount, Collections.singletonList(streamResults)).execute(tests);
+
+        System.exit(0);     // don't wait on threads the tests left behind
+    }
+}
@@ -0,0 +1,119 @@
+package test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * What happened to each test the last time it ran, kept on disk between runs. The driver
+ * uses it to balance work by how long tests actually take rather than by how many there are,
+ * and to run the tests that failed last time first.
+ * Tests are keyed by class and method name, and the file is a flat binary file written with
+ * DataOutputStream, like LiteIndex.
+ */
+class LiteHistory {
+
+    private static final LiteStore STORE = new LiteStore(0x4C495448, 2, "history");    // "LITH"
+
+    private Path file;
+    private Map<String, Long> durations = new ConcurrentHashMap<>();
+    private Set<String> failed = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    LiteHistory(Path file) {
+        this.file = file;
+    }
+
+    static String keyOf(LiteTest test) {
+        return test.getClassName() + "#" + test.testMethod.getName();
+    }
+
+    /**
+     * The duration of the test's last run in nanoseconds, or -1 if it has never run.
+     */
+    long getDuration(LiteTest test) {
+        Long duration = durations.get(keyOf(test));
+        return duration == null ? -1 : duration;
+    }
+
+    /**
+     * True if the test failed the last time it ran.
+     */
+    boolean hasFailed(LiteTest test) {
+        return failed.contains(keyOf(test));
+    }
+
+    /**
+     * The average duration of every test in the history, used as the estimate for tests
+     * that haven't run yet so they are neither free nor feared. 1 if the history is empty.
+     */
+    long averageDuration() {
+        if(durations.isEmpty())
+            return 1;
+        long total = 0;
+        for(long known : durations.values())
+            total += known;
+        return Math.max(1, total / durations.size());
+    }
+
+    /**
+     * Records the outcome of every test in the batch that actually ran.
+     */
+    void record(Collection<LiteTest> tests) {
+        for(LiteTest test : tests) {
+            if(!test.hasRun)
+                continue;
+            durations.put(keyOf(test), test.duration);
+            if(test.passed)
+                failed.remove(keyOf(test));
+            else
+                failed.add(keyOf(test));
+        }
+    }
+
+    /**
+     * Loads the history from disk. A missing or unreadable file leaves it empty.
+     */
+    void load() {
+        durations.clear();
+        failed.clear();
+        if(!Files.isRegularFile(file))
+            return;
+        try (DataInputStream in = STORE.open(file)) {
+            int count = in.readInt();
+            for(int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                durations.put(key, in.readLong());
+                if(in.readBoolean())
+                    failed.add(key);
+            }
+        } catch (IOException e) {
+            durations.clear();
+            failed.clear();
+        }
+    }
+
+    void save() {
+        try {
+            STORE.write(file, new LiteStore.Contents() {
+                @Override
+                public void write(DataOutputStream out) throws IOException {
+                    out.writeInt(durations.size());
+                    for(Map.Entry<String, Long> entry : durations.entrySet()) {
+                        out.writeUTF(entry.getKey());
+                        out.writeLong(entry.getValue());
+                        out.writeBoolean(failed.contains(entry.getKey()));
+                    }
+                }
+            });
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
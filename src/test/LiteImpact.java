@@ -0,0 +1,177 @@
+package test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A map from each test to the classes it touched the last time it ran, kept on disk between
+ * runs. Given a set of changed files, it answers whether a test could be affected by them.
+ * Tests it has no record of are always treated as affected.
+ * <br>
+ * The classes are recorded per test class: while recording, every test class is loaded by a
+ * tracking LiteClassLoader of its own, and all the classes that loader defines are charged to
+ * each of the class's tests. That over-counts a little, which only ever means running a test
+ * that didn't need to run. The file stores each class name once and refers to it by index.
+ */
+class LiteImpact {
+
+    private static final LiteStore STORE = new LiteStore(0x4C495449, 1, "impact");    // "LITI"
+
+    private Path file;
+    private Map<String, Set<String>> touched = new HashMap<>();
+
+    LiteImpact(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Records the classes touched by every test in the batch that was loaded by a tracking
+     * LiteClassLoader.
+     */
+    void record(Collection<LiteTest> tests) {
+        Map<ClassLoader, Set<String>> byLoader = new HashMap<>();
+        for(LiteTest test : tests) {
+            ClassLoader loader = test.testClass.getClassLoader();
+            if(!test.hasRun || !(loader instanceof LiteClassLoader))
+                continue;
+            Set<String> classes = byLoader.get(loader);
+            if(classes == null) {
+                classes = ((LiteClassLoader) loader).getDefinedClasses();
+                byLoader.put(loader, classes);
+            }
+            touched.put(LiteHistory.keyOf(test), classes);
+        }
+    }
+
+    /**
+     * Turns changed .java or .class files into the set of names that a changed class could
+     * match: every dotted suffix of the file's path, such as "Foo", "pkg.Foo" and "src.pkg.Foo".
+     * The project layout doesn't need to be known this way.
+     */
+    static Set<String> toChangedNames(Collection<String> changedFiles) {
+        Set<String> names = new HashSet<>();
+        for(String changedFile : changedFiles) {
+            String path = changedFile.replace(File.separatorChar, '/').replace('\\', '/');
+            if(path.endsWith(".java"))
+                path = path.substring(0, path.length() - ".java".length());
+            else if(path.endsWith(".class"))
+                path = path.substring(0, path.length() - ".class".length());
+            else
+                continue;
+            int nested = path.indexOf('$', path.lastIndexOf('/') + 1);
+            if(nested >= 0)
+                path = path.substring(0, nested);
+
+            String[] parts = path.split("/");
+            String suffix = "";
+            for(int i = parts.length - 1; i >= 0; i--) {
+                if(parts[i].equals(""))
+                    continue;
+                suffix = suffix.equals("") ? parts[i] : parts[i] + "." + suffix;
+                names.add(suffix);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * True if the test touched one of the changed classes, or if there is no record of it.
+     * @param changedNames The names built by toChangedNames().
+     */
+    boolean isAffected(LiteTest test, Set<String> changedNames) {
+        Set<String> classes = touched.get(LiteHistory.keyOf(test));
+        return classes == null || touchedAny(classes, changedNames);
+    }
+
+    /**
+     * The names of the test classes with at least one test that touched a changed class.
+     * @param changedNames The names built by toChangedNames().
+     */
+    Set<String> affectedClasses(Set<String> changedNames) {
+        Set<String> affected = new HashSet<>();
+        for(Map.Entry<String, Set<String>> entry : touched.entrySet()) {
+            String testClass = entry.getKey().substring(0, entry.getKey().indexOf('#'));
+            if(!affected.contains(testClass) && touchedAny(entry.getValue(), changedNames))
+                affected.add(testClass);
+        }
+        return affected;
+    }
+
+    private static boolean touchedAny(Set<String> classes, Set<String> changedNames) {
+        for(String className : classes) {
+            int nested = className.indexOf('$');
+            if(changedNames.contains(nested < 0 ? className : className.substring(0, nested)))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Loads the map from disk. A missing or unreadable file leaves it empty.
+     */
+    void load() {
+        touched.clear();
+        if(!Files.isRegularFile(file))
+            return;
+        try (DataInputStream in = STORE.open(file)) {
+            String[] classNames = new String[in.readInt()];
+            for(int i = 0; i < classNames.length; i++)
+                classNames[i] = in.readUTF();
+            int testCount = in.readInt();
+            for(int i = 0; i < testCount; i++) {
+                String key = in.readUTF();
+                int classCount = in.readInt();
+                Set<String> classes = new HashSet<>();
+                for(int j = 0; j < classCount; j++)
+                    classes.add(classNames[in.readInt()]);
+                touched.put(key, classes);
+            }
+        } catch (IOException e) {
+            touched.clear();
+        }
+    }
+
+    void save() {
+        final Map<String, Integer> indexes = new HashMap<>();
+        final List<String> classNames = new ArrayList<>();
+        for(Set<String> classes : touched.values()) {
+            for(String className : classes) {
+                if(!indexes.containsKey(className)) {
+                    indexes.put(className, classNames.size());
+                    classNames.add(className);
+                }
+            }
+        }
+
+        try {
+            STORE.write(file, new LiteStore.Contents() {
+                @Override
+                public void write(DataOutputStream out) throws IOException {
+                    out.writeInt(classNames.size());
+                    for(String className : classNames)
+                        out.writeUTF(className);
+                    out.writeInt(touched.size());
+                    for(Map.Entry<String, Set<String>> entry : touched.entrySet()) {
+                        out.writeUTF(entry.getKey());
+                        out.writeInt(entry.getValue().size());
+                        for(String className : entry.getValue())
+                            out.writeInt(indexes.get(className));
+                    }
+                }
+            });
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+
+/**
+ * An on-disk index of what discovery found in each class, so that repeated scans can skip
+ * classes whose class files haven't changed. Every entry is keyed by class name and stamped
+ * with the modification time and size of the class file it was read from; a class is only
+ * inspected again when that stamp changes. Classes that turned out not to contain tests are
+ * indexed too, since they are usually the bulk of a scan.
+ * <br>
+ * The index is stored as a flat binary file written with DataOutputStream, see LiteStore.
+ */
+class LiteIndex {
+
+    private static final LiteStore STORE = new LiteStore(0x4C495458, 1, "index");    // "LITX"
+
+    private Path file;
+    private Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private boolean dirty = false;
+
+    LiteIndex(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * What discovery learned about one class file.
+     */
+    static class Entry {
+        long modified;
+        long size;
+        boolean classAnnotated;
+        List<String> methods = new ArrayList<>();
+        List<String> reqIds = new ArrayList<>();
+
+        private Entry(long modified, long size) {
+            this.modified = modified;
+            this.size = size;
+        }
+
+        /**
+         * Creates an empty entry stamped with the class file at the given location, or
+         * returns null if the location can't be stamped.
+         */
+        static Entry stampOf(URL classFile) {
+            if(classFile == null)
+                return null;
+            try {
+                if(classFile.getProtocol().equals("file")) {
+                    File onDisk = new File(classFile.toURI());
+                    return new Entry(onDisk.lastModified(), onDisk.length());
+                }
+                if(classFile.getProtocol().equals("jar")) {
+                    JarURLConnection connection = (JarURLConnection) classFile.openConnection();
+                    connection.setUseCaches(true);
+                    JarEntry jarEntry = connection.getJarEntry();
+                    return new Entry(jarEntry.getTime(), jarEntry.getSize());
+                }
+            } catch (Exception e) {
+                return null;
+            }
+            return null;
+        }
+
+        void addMethod(String method, String reqId) {
+            methods.add(method);
+            reqIds.add(reqId);
+        }
+    }
+
+    /**
+     * Returns the indexed entry for the class if its stamp still matches, otherwise null.
+     */
+    Entry get(String className, Entry stamp) {
+        Entry entry = entries.get(className);
+        if(entry == null || stamp == null || entry.modified != stamp.modified || entry.size != stamp.size)
+            return null;
+        return entry;
+    }
+
+    void put(String className, Entry entry) {
+        entries.put(className, entry);
+        dirty = true;
+    }
+
+    void remove(String className) {
+        if(entries.remove(className) != null)
+            dirty = true;
+    }
+
+    /**
+     * Loads the index from disk. A missing or unreadable file leaves the index empty.
+     */
+    void load() {
+        entries.clear();
+        if(!Files.isRegularFile(file))
+            return;
+        try (DataInputStream in = STORE.open(file)) {
+            int count = in.readInt();
+            for(int i = 0; i < count; i++) {
+                String className = in.readUTF();
+                Entry entry = new Entry(in.readLong(), in.readLong());
+                entry.classAnnotated = in.readBoolean();
+                int methodCount = in.readShort();
+                for(int j = 0; j < methodCount; j++)
+                    entry.addMethod(in.readUTF(), in.readUTF());
+                entries.put(className, entry);
+            }
+        } catch (IOException e) {
+            entries.clear();
+        }
+        dirty = false;
+    }
+
+    /**
+     * Writes the index back to disk if anything has changed since it was loaded.
+     */
+    void save() {
+        if(!dirty)
+            return;
+        try {
+            STORE.write(file, new LiteStore.Contents() {
+                @Override
+                public void write(DataOutputStream out) throws IOException {
+                    out.writeInt(entries.size());
+                    for(Map.Entry<String, Entry> indexed : entries.entrySet()) {
+                        Entry entry = indexed.getValue();
+                        out.writeUTF(indexed.getKey());
+                        out.writeLong(entry.modified);
+                        out.writeLong(entry.size);
+                        out.writeBoolean(entry.classAnnotated);
+                        out.writeShort(entry.methods.size());
+                        for(int i = 0; i < entry.methods.size(); i++) {
+                            out.writeUTF(entry.methods.get(i));
+                            out.writeUTF(entry.reqIds.get(i));
+                        }
+                    }
+                }
+            });
+            dirty = false;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
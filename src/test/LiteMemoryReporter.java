@@ -0,0 +1,38 @@
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A LiteReporter that keeps every result in memory, in the order the tests finished.
+ */
+public class LiteMemoryReporter implements LiteReporter {
+
+    private List<LiteResult> results = new ArrayList<>();
+    private boolean finished = false;
+
+    @Override
+    public void testStarted(String className, String methodName) {
+        if(finished) {
+            results = new ArrayList<>();
+            finished = false;
+        }
+    }
+
+    @Override
+    public void testFinished(LiteResult result) {
+        results.add(result);
+    }
+
+    @Override
+    public void runFinished(int testsRun, int testsFailed, long duration) {
+        finished = true;
+    }
+
+    /**
+     * The results of the current run, or of the last run if none is in progress.
+     */
+    public List<LiteResult> getResults() {
+        return results;
+    }
+}
@@ -0,0 +1,26 @@
+package test;
+
+/**
+ * The order in which LiteDriver executes its queued tests. Every order other than ALPHABETICAL
+ * needs a history file (see LiteDriver.setHistoryFile()) and runs the tests that failed last
+ * time before the rest. Results are always printed in alphabetical order.
+ */
+public enum LiteOrder {
+
+    /**
+     * By class name and then method name, the same order the results are printed in.
+     */
+    ALPHABETICAL,
+
+    /**
+     * Recent failures first, then the quickest tests last time first, so that a run with
+     * failures reports them as early as possible.
+     */
+    FASTEST_FIRST,
+
+    /**
+     * Recent failures first, then the slowest tests last time first, so that the long tests
+     * don't end up alone at the end of a parallel run.
+     */
+    LONGEST_FIRST
+}
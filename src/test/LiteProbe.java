@@ -0,0 +1,231 @@
+package test;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Measures what one run of a test method costs besides time: the bytes it allocated and the
+ * CPU time it used on the thread that ran it, the garbage collections that happened meanwhile,
+ * and the threads it started that were still alive once it returned. Each reading is a single
+ * call to the JVM's management beans, so a probe adds microseconds to a test, not milliseconds.
+ * <br>
+ * Allocation and CPU time only count the thread that ran the test method. Garbage collections
+ * and threads are counted across the whole JVM, so when tests run in parallel they may include
+ * the work of the tests running alongside. Threads LiteUnit starts for itself, which are all
+ * named Lite..., and the common fork-join pool's workers are never counted as leaked.
+ */
+class LiteProbe {
+
+    static final long LEAK_GRACE_MILLIS = 100;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final List<GarbageCollectorMXBean> COLLECTORS = ManagementFactory.getGarbageCollectorMXBeans();
+
+    boolean measured = false;
+    long allocatedBytes = -1;   // -1 if the JVM can't tell
+    long cpuTime = -1;          // nanoseconds, -1 if the JVM can't tell
+    long gcCount;
+    long gcTime;                // milliseconds
+    List<String> leakedThreads = Collections.emptyList();
+
+    private long allocatedBefore;
+    private long cpuBefore;
+    private long gcCountBefore;
+    private long gcTimeBefore;
+    private ThreadList threadsBefore;
+
+    // The live threads as of the last time they were listed. While the JVM's count of started
+    // threads stays the same no thread can have been added, so the list is reused instead of
+    // listing the threads again for every test.
+    private static ThreadList knownThreads;
+
+    private static class ThreadList {
+        final long started;
+        final Map<Thread, Boolean> threads = new IdentityHashMap<>();
+
+        ThreadList(long started) {
+            this.started = started;
+        }
+    }
+
+    /**
+     * Takes the readings to compare against. Call on the thread that runs the test method.
+     */
+    void start() {
+        threadsBefore = knownThreads();
+        gcCountBefore = totalGcCount();
+        gcTimeBefore = totalGcTime();
+        cpuBefore = cpuTime();
+        allocatedBefore = allocatedBytes();
+    }
+
+    /**
+     * Takes the readings again, on the same thread as start(), and keeps the differences. A
+     * thread that was started in between is given LEAK_GRACE_MILLIS, shared among all of them,
+     * to finish before it is counted as leaked; that wait is counted in the test's time.
+     */
+    void stop() {
+        long allocatedAfter = allocatedBytes();
+        long cpuAfter = cpuTime();
+        allocatedBytes = allocatedBefore < 0 || allocatedAfter < 0 ? -1 : allocatedAfter - allocatedBefore;
+        cpuTime = cpuBefore < 0 || cpuAfter < 0 ? -1 : cpuAfter - cpuBefore;
+        gcCount = totalGcCount() - gcCountBefore;
+        gcTime = totalGcTime() - gcTimeBefore;
+
+        List<Thread> started = new ArrayList<>();
+        if(THREADS.getTotalStartedThreadCount() != threadsBefore.started) {
+            for(Thread thread : knownThreads().threads.keySet()) {
+                if(!threadsBefore.threads.containsKey(thread) && thread != Thread.currentThread() && !isOwn(thread))
+                    started.add(thread);
+            }
+        }
+        threadsBefore = null;
+        if(!started.isEmpty()) {
+            long deadline = System.nanoTime() + LEAK_GRACE_MILLIS * 1000000;
+            List<String> leaked = new ArrayList<>();
+            for(Thread thread : started) {
+                long remaining = (deadline - System.nanoTime()) / 1000000;
+                try {
+                    if(remaining > 0)
+                        thread.join(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if(thread.isAlive())
+                    leaked.add(thread.getName());
+            }
+            if(!leaked.isEmpty())
+                leakedThreads = leaked;
+        }
+        measured = true;
+    }
+
+    /**
+     * Adds another probe's readings to this one's, such as those of one case of a
+     * parameterized test to the test's total.
+     */
+    synchronized void add(LiteProbe other) {
+        if(!other.measured)
+            return;
+        if(!measured) {
+            allocatedBytes = 0;
+            cpuTime = 0;
+            measured = true;
+        }
+        allocatedBytes = allocatedBytes < 0 || other.allocatedBytes < 0 ? -1 : allocatedBytes + other.allocatedBytes;
+        cpuTime = cpuTime < 0 || other.cpuTime < 0 ? -1 : cpuTime + other.cpuTime;
+        gcCount += other.gcCount;
+        gcTime += other.gcTime;
+        if(!other.leakedThreads.isEmpty()) {
+            List<String> leaked = new ArrayList<>(leakedThreads);
+            leaked.addAll(other.leakedThreads);
+            leakedThreads = leaked;
+        }
+    }
+
+    /**
+     * Rebuilds the probe of a result, such as one sent back by a forked JVM, or returns null if
+     * the result wasn't measured.
+     */
+    static LiteProbe from(LiteResult result) {
+        if(result.getGcCount() < 0)
+            return null;
+        LiteProbe probe = new LiteProbe();
+        probe.allocatedBytes = result.getAllocatedBytes();
+        probe.cpuTime = result.getCpuTime();
+        probe.gcCount = result.getGcCount();
+        probe.gcTime = result.getGcTime();
+        probe.leakedThreads = result.getLeakedThreads();
+        probe.measured = true;
+        return probe;
+    }
+
+    /**
+     * The CPU time and garbage collections, for listing after the bytes allocated.
+     */
+    String getSummary() {
+        StringBuilder summary = new StringBuilder();
+        summary.append("cpu ").append(cpuTime < 0 ? "?" : LiteTest.formatDuration(cpuTime));
+        summary.append("  gc ").append(gcCount).append(gcCount == 1 ? " time" : " times");
+        if(gcCount > 0)
+            summary.append(" (").append(gcTime).append(" ms)");
+        return summary.toString();
+    }
+
+    static String formatBytes(long bytes) {
+        if(bytes < 1024)
+            return bytes + " B";
+        if(bytes < 1024 * 1024)
+            return String.format(Locale.ROOT, "%.1f KB", bytes / 1024.0);
+        if(bytes < 1024L * 1024 * 1024)
+            return String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024));
+        return String.format(Locale.ROOT, "%.2f GB", bytes / (1024.0 * 1024 * 1024));
+    }
+
+    private static boolean isOwn(Thread thread) {
+        return thread.getName().startsWith("Lite") || thread.getName().startsWith("ForkJoinPool.commonPool-");
+    }
+
+    private static synchronized ThreadList knownThreads() {
+        long started = THREADS.getTotalStartedThreadCount();
+        if(knownThreads != null && knownThreads.started == started)
+            return knownThreads;
+        ThreadList list = new ThreadList(started);
+        for(Thread thread : liveThreads())
+            list.threads.put(thread, Boolean.TRUE);
+        knownThreads = list;
+        return list;
+    }
+
+    private static Thread[] liveThreads() {
+        ThreadGroup root = Thread.currentThread().getThreadGroup();
+        while(root.getParent() != null)
+            root = root.getParent();
+        Thread[] threads = new Thread[root.activeCount() + 16];
+        int count;
+        while((count = root.enumerate(threads)) == threads.length)
+            threads = new Thread[threads.length * 2];
+        Thread[] live = new Thread[count];
+        System.arraycopy(threads, 0, live, 0, count);
+        return live;
+    }
+
+    private static long totalGcCount() {
+        long total = 0;
+        for(GarbageCollectorMXBean collector : COLLECTORS)
+            total += Math.max(0, collector.getCollectionCount());
+        return total;
+    }
+
+    private static long totalGcTime() {
+        long total = 0;
+        for(GarbageCollectorMXBean collector : COLLECTORS)
+            total += Math.max(0, collector.getCollectionTime());
+        return total;
+    }
+
+    private static long cpuTime() {
+        if(THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled())
+            return THREADS.getCurrentThreadCpuTime();
+        return -1;
+    }
+
+    /**
+     * The bytes allocated so far by the current thread, or -1 if the JVM can't tell.
+     */
+    static long allocatedBytes() {
+        if(THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+            if(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled())
+                return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
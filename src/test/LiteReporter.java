@@ -0,0 +1,31 @@
+package test;
+
+/**
+ * Receives test results from a LiteDriver while the tests are running, rather than after
+ * the whole batch has finished. Add a reporter to a driver with LiteDriver.addReporter().
+ * <br>
+ * Calls are never made concurrently, even when the tests run in parallel, so implementations
+ * don't need to be thread safe. They should return quickly, though, since workers wait on them.
+ */
+public interface LiteReporter {
+
+    /**
+     * Called just before a test is run.
+     * @param className The fully qualified name of the class that holds the test.
+     * @param methodName The name of the test method.
+     */
+    void testStarted(String className, String methodName);
+
+    /**
+     * Called as soon as a test has finished.
+     */
+    void testFinished(LiteResult result);
+
+    /**
+     * Called once every queued test has finished.
+     * @param testsRun The number of tests that were run.
+     * @param testsFailed The number of those tests that failed.
+     * @param duration The time spent running the batch, in nanoseconds.
+     */
+    void runFinished(int testsRun, int testsFailed, long duration);
+}
@@ -0,0 +1,203 @@
+package test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a single test, handed to each LiteReporter as soon as the test finishes.
+ * A LiteResult holds only strings and numbers, so it can be kept around after the test
+ * itself has been released.
+ */
+public class LiteResult {
+
+    private String className;
+    private String methodName;
+    private String reqId;
+    private boolean passed;
+    private long duration;
+    private String timeStamp;
+    private String exception;
+    private String trace;
+    private long allocatedBytes = -1;
+    private long cpuTime = -1;
+    private long gcCount = -1;
+    private long gcTime = -1;
+    private List<String> leakedThreads = Collections.emptyList();
+
+    LiteResult(String className, String methodName, String reqId, boolean passed, long duration,
+               String timeStamp, String exception, String trace) {
+        this.className = className;
+        this.methodName = methodName;
+        this.reqId = reqId;
+        this.passed = passed;
+        this.duration = duration;
+        this.timeStamp = timeStamp;
+        this.exception = exception;
+        this.trace = trace;
+    }
+
+    /**
+     * Attaches what the test cost besides time, as measured by its LiteProbe.
+     */
+    void setUsage(LiteProbe probe) {
+        if(probe == null || !probe.measured)
+            return;
+        allocatedBytes = probe.allocatedBytes;
+        cpuTime = probe.cpuTime;
+        gcCount = probe.gcCount;
+        gcTime = probe.gcTime;
+        leakedThreads = Collections.unmodifiableList(new ArrayList<>(probe.leakedThreads));
+    }
+
+    /**
+     * Writes the result in the binary form read by read(DataInputStream).
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeUTF(className);
+        out.writeUTF(methodName);
+        out.writeUTF(reqId);
+        out.writeBoolean(passed);
+        out.writeLong(duration);
+        writeString(timeStamp, out);
+        writeString(exception, out);
+        writeString(trace, out);
+        out.writeLong(allocatedBytes);
+        out.writeLong(cpuTime);
+        out.writeLong(gcCount);
+        out.writeLong(gcTime);
+        out.writeInt(leakedThreads.size());
+        for(String thread : leakedThreads)
+            out.writeUTF(thread);
+    }
+
+    static LiteResult read(DataInputStream in) throws IOException {
+        LiteResult result = new LiteResult(in.readUTF(), in.readUTF(), in.readUTF(), in.readBoolean(), in.readLong(),
+                readString(in), readString(in), readString(in));
+        result.allocatedBytes = in.readLong();
+        result.cpuTime = in.readLong();
+        result.gcCount = in.readLong();
+        result.gcTime = in.readLong();
+        int leaked = in.readInt();
+        if(leaked > 0) {
+            List<String> threads = new ArrayList<>(leaked);
+            for(int i = 0; i < leaked; i++)
+                threads.add(in.readUTF());
+            result.leakedThreads = Collections.unmodifiableList(threads);
+        }
+        return result;
+    }
+
+    // writeUTF can't hold more than 64KB, which a deep trace can exceed
+    private static void writeString(String text, DataOutputStream out) throws IOException {
+        if(text == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if(length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The fully qualified name of the class that holds the test.
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * The reqId from the test's @LiteTest annotation, or "" if it didn't set one.
+     */
+    public String getReqId() {
+        return reqId;
+    }
+
+    public boolean isPassed() {
+        return passed;
+    }
+
+    /**
+     * How long the test method took to run, in nanoseconds.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * When the test finished, formatted as yyyyMMdd_HHmmss.
+     */
+    public String getTimeStamp() {
+        return timeStamp;
+    }
+
+    /**
+     * The shortened description of the error the test failed with, or null if it passed.
+     */
+    public String getException() {
+        return exception;
+    }
+
+    /**
+     * The stack trace of the error the test failed with, or null if it passed.
+     */
+    public String getTrace() {
+        return trace;
+    }
+
+    /**
+     * The bytes the test method allocated on the thread that ran it, or -1 if the JVM can't
+     * tell or the test wasn't measured. Benchmarks and stress tests aren't measured.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * The CPU time the test method used on the thread that ran it, in nanoseconds, or -1 if
+     * the JVM can't tell or the test wasn't measured.
+     */
+    public long getCpuTime() {
+        return cpuTime;
+    }
+
+    /**
+     * The number of garbage collections in the JVM while the test method ran, or -1 if the
+     * test wasn't measured.
+     */
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    /**
+     * The time those garbage collections took, in milliseconds, or -1 if the test wasn't
+     * measured.
+     */
+    public long getGcTime() {
+        return gcTime;
+    }
+
+    /**
+     * The names of the threads the test started that were still alive after it returned.
+     */
+    public List<String> getLeakedThreads() {
+        return leakedThreads;
+    }
+}
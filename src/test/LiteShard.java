@@ -0,0 +1,74 @@
+package test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * One node's share of a test run split across several nodes, and the file of results each
+ * node leaves behind for one of them to merge. Every node discovers the same tests and splits
+ * them the same way, see LiteExecutor.partition(), then keeps the partition at its own index,
+ * so the nodes never need to talk to each other.
+ * <br>
+ * The result file starts with the magic number "LITR", a version, the shard's index and the
+ * number of shards, followed by the results in the form written by LiteResult.write().
+ */
+class LiteShard {
+
+    private static final LiteStore STORE = new LiteStore(0x4C495452, 1, "shard result");    // "LITR"
+
+    int index;
+    int count;
+    List<LiteResult> results;     // only set on a shard read from a file
+
+    LiteShard(int index, int count) {
+        this.index = index;
+        this.count = count;
+    }
+
+    /**
+     * Picks this shard's tests out of all of them.
+     * @param history The durations to balance the shards by. Without one they are balanced by
+     *                the number of tests. Every node must use the same history.
+     */
+    List<LiteTest> select(Collection<LiteTest> tests, LiteHistory history) {
+        if(count <= 1)
+            return new ArrayList<>(tests);
+        return LiteExecutor.partition(tests, count, history).get(index);
+    }
+
+    /**
+     * Writes this shard's results to the file, replacing it.
+     */
+    void write(Path file, final Collection<LiteResult> shardResults) throws IOException {
+        STORE.write(file, new LiteStore.Contents() {
+            @Override
+            public void write(DataOutputStream out) throws IOException {
+                out.writeInt(index);
+                out.writeInt(count);
+                out.writeInt(shardResults.size());
+                for(LiteResult result : shardResults)
+                    result.write(out);
+            }
+        });
+    }
+
+    /**
+     * Reads a file written by write().
+     * @throws IOException if the file can't be read or wasn't written by write().
+     */
+    static LiteShard read(Path file) throws IOException {
+        try (DataInputStream in = STORE.open(file)) {
+            LiteShard shard = new LiteShard(in.readInt(), in.readInt());
+            int resultCount = in.readInt();
+            shard.results = new ArrayList<>(resultCount);
+            for(int i = 0; i < resultCount; i++)
+                shard.results.add(LiteResult.read(in));
+            return shard;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * One of the flat binary files LiteUnit keeps between runs, such as the index, the history or
+ * a shard's results. Every such file starts with a magic number naming the kind of file and
+ * the version of its format, followed by whatever its owner writes with DataOutputStream.
+ * <br>
+ * Files are written to a temporary file next to them first and then moved over the old one,
+ * atomically where the file system allows it, so a run that dies part way through never
+ * leaves a half written file behind.
+ */
+class LiteStore {
+
+    /**
+     * Writes what follows the header of a file.
+     */
+    interface Contents {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private int magic;
+    private int version;
+    private String kind;
+
+    /**
+     * @param magic Four characters naming the kind of file, packed into an int.
+     * @param version The version of the format. Files of any other version are not read.
+     * @param kind What the file holds, for error messages.
+     */
+    LiteStore(int magic, int version, String kind) {
+        this.magic = magic;
+        this.version = version;
+        this.kind = kind;
+    }
+
+    /**
+     * Opens the file and checks its header, returning a stream positioned just after it.
+     * @throws IOException if the file can't be read, or is not this kind of file or version.
+     */
+    DataInputStream open(Path file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+        try {
+            if(in.readInt() != magic || in.readInt() != version)
+                throw new IOException(file + " is not a LiteUnit " + kind + " file of version " + version);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return in;
+    }
+
+    /**
+     * Writes the header and the contents to the file, replacing it.
+     */
+    void write(Path file, Contents contents) throws IOException {
+        if(file.getParent() != null)
+            Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(magic);
+            out.writeInt(version);
+            contents.write(out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package test;
+
+import test.annotations.LiteConcurrent;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs a @LiteConcurrent test method from several threads at once and keeps its statistics.
+ * Each thread counts its own calls and failures, so the threads share nothing but the test
+ * instance while they run. Blocking and waiting are read from the JVM's per-thread counters
+ * before and after each thread's calls; the times are only available when the JVM supports
+ * thread contention monitoring, which is turned on for the run.
+ */
+class LiteStress {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    int threadCount;
+    int iterations;
+    long durationMillis;
+
+    long calls;
+    long failedCalls;
+    double callsPerSecond;
+    long blockedCount;
+    long blockedMillis = -1;     // -1 without contention monitoring
+    long waitedCount;
+    long waitedMillis = -1;
+    private Worker[] workers;
+
+    LiteStress(LiteConcurrent annotation) {
+        threadCount = Math.max(1, annotation.threads());
+        iterations = Math.max(1, annotation.iterations());
+        durationMillis = annotation.durationMillis();
+    }
+
+    /**
+     * One of the threads calling the test method.
+     */
+    private class Worker implements Runnable {
+        final int index;
+        final MethodHandle invoker;
+        final Object instance;
+        final CyclicBarrier start;
+        long calls;
+        long failed;
+        Throwable firstError;
+        String firstErrorText;      // kept for the report once the error has been let go of
+        long blockedCount;
+        long blockedMillis;
+        long waitedCount;
+        long waitedMillis;
+
+        Worker(int index, MethodHandle invoker, Object instance, CyclicBarrier start) {
+            this.index = index;
+            this.invoker = invoker;
+            this.instance = instance;
+            this.start = start;
+        }
+
+        @Override
+        public void run() {
+            try {
+                start.await();
+            } catch (InterruptedException | BrokenBarrierException e) {
+                return;
+            }
+            ThreadInfo before = THREADS.getThreadInfo(Thread.currentThread().getId());
+            long deadline = System.nanoTime() + durationMillis * 1000000;
+            while(durationMillis > 0 ? System.nanoTime() - deadline < 0 : calls < iterations) {
+                if(Thread.currentThread().isInterrupted())
+                    break;
+                calls++;
+                try {
+                    invoker.invokeExact(instance);
+                } catch (Throwable e) {
+                    failed++;
+                    if(firstError == null)
+                        firstError = e;
+                }
+            }
+            ThreadInfo after = THREADS.getThreadInfo(Thread.currentThread().getId());
+            if(before != null && after != null) {
+                blockedCount = after.getBlockedCount() - before.getBlockedCount();
+                waitedCount = after.getWaitedCount() - before.getWaitedCount();
+                blockedMillis = before.getBlockedTime() < 0 ? -1 : after.getBlockedTime() - before.getBlockedTime();
+                waitedMillis = before.getWaitedTime() < 0 ? -1 : after.getWaitedTime() - before.getWaitedTime();
+            }
+        }
+    }
+
+    /**
+     * Runs the stress test and returns the first error any thread got, or null if every call
+     * passed. If the threads haven't all finished after timeoutMillis, they are interrupted
+     * and left behind, and a TimeoutException holding the stack of one of the stuck threads
+     * is returned.
+     * @param timeoutMillis 0 for no timeout.
+     */
+    Throwable run(MethodHandle invoker, Object instance, long timeoutMillis, String name) {
+        boolean monitoring = THREADS.isThreadContentionMonitoringSupported();
+        boolean wasMonitoring = monitoring && THREADS.isThreadContentionMonitoringEnabled();
+        if(monitoring && !wasMonitoring)
+            THREADS.setThreadContentionMonitoringEnabled(true);
+
+        workers = new Worker[threadCount];
+        Thread[] threads = new Thread[threadCount];
+        final long[] started = new long[1];
+        CyclicBarrier start = new CyclicBarrier(threadCount, new Runnable() {
+            @Override
+            public void run() {
+                started[0] = System.nanoTime();
+            }
+        });
+        for(int i = 0; i < threadCount; i++) {
+            workers[i] = new Worker(i, invoker, instance, start);
+            threads[i] = new Thread(workers[i], "LiteConcurrent-" + name + "-" + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+
+        Thread stuck = null;
+        try {
+            long deadline = System.nanoTime() + timeoutMillis * 1000000;
+            for(Thread thread : threads) {
+                if(timeoutMillis <= 0) {
+                    thread.join();
+                    continue;
+                }
+                long remaining = (deadline - System.nanoTime()) / 1000000;
+                if(remaining > 0)
+                    thread.join(remaining);
+                if(thread.isAlive()) {
+                    stuck = thread;
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if(monitoring && !wasMonitoring)
+                THREADS.setThreadContentionMonitoringEnabled(false);
+        }
+        long elapsed = System.nanoTime() - started[0];
+
+        if(stuck != null) {
+            StackTraceElement[] stuckAt = stuck.getStackTrace();
+            for(Thread thread : threads)
+                thread.interrupt();
+            TimeoutException timeout = new TimeoutException("Stress test timed out after " + timeoutMillis + " ms");
+            timeout.setStackTrace(stuckAt);
+            return timeout;
+        }
+
+        Throwable firstError = null;
+        calls = 0;
+        failedCalls = 0;
+        blockedCount = 0;
+        waitedCount = 0;
+        blockedMillis = monitoring ? 0 : -1;
+        waitedMillis = monitoring ? 0 : -1;
+        for(Worker worker : workers) {
+            calls += worker.calls;
+            failedCalls += worker.failed;
+            blockedCount += worker.blockedCount;
+            waitedCount += worker.waitedCount;
+            if(monitoring) {
+                blockedMillis += Math.max(0, worker.blockedMillis);
+                waitedMillis += Math.max(0, worker.waitedMillis);
+            }
+            if(worker.firstError != null) {
+                worker.firstErrorText = worker.firstError.toString().replaceAll("\\R", " ");
+                if(firstError == null)
+                    firstError = worker.firstError;
+                worker.firstError = null;
+            }
+        }
+        callsPerSecond = elapsed <= 0 ? 0 : calls * 1000000000.0 / elapsed;
+        return firstError;
+    }
+
+    String getSummary() {
+        String summary = String.format(Locale.ROOT, "%d threads  %,d calls  %,.0f calls/s  %,d failed",
+                threadCount, calls, callsPerSecond, failedCalls);
+        summary += String.format(Locale.ROOT, "  blocked %,d times", blockedCount);
+        if(blockedMillis >= 0)
+            summary += String.format(Locale.ROOT, " (%,d ms)", blockedMillis);
+        summary += String.format(Locale.ROOT, "  waited %,d times", waitedCount);
+        if(waitedMillis >= 0)
+            summary += String.format(Locale.ROOT, " (%,d ms)", waitedMillis);
+        return summary;
+    }
+
+    /**
+     * A line for each thread that had failed calls, or "" if none did.
+     */
+    String getThreadFailures() {
+        StringBuilder builder = new StringBuilder();
+        if(workers == null)
+            return "";
+        for(Worker worker : workers) {
+            if(worker == null || worker.failed == 0)
+                continue;
+            builder.append(String.format(Locale.ROOT, "thread %d: %,d of %,d calls failed, first with %s%n",
+                    worker.index, worker.failed, worker.calls, worker.firstErrorText));
+        }
+        return builder.toString();
+    }
+}
@@ -1,11 +1,19 @@
 package test;
 
+import test.annotations.LiteBenchmark;
 import test.annotations.LiteClass;
+import test.annotations.LiteParameters;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
 
 /**
  * Created by brandt on 2/20/16.
@@ -16,6 +24,11 @@ class LiteTarget {
     private String localDotPath;
     private boolean recurse;
     private boolean requireClassAnnotation;
+    private LiteClasspath classpath;
+    private LiteIndex index;
+    private ClassLoader classLoader = LiteTarget.class.getClassLoader();
+    private List<Path> trackedRoots;
+    private BlockingQueue<List<LiteTest>> batches;     // only set while streaming
     private char slash = File.separatorChar;
 
     LiteTarget(String fullSlashPath, String localDotPath, boolean recurse, boolean requireClassAnnotation) {
@@ -25,14 +38,90 @@ class LiteTarget {
         this.requireClassAnnotation = requireClassAnnotation;
     }
 
+    /**
+     * Creates a target that discovers compiled classes on the given classpath instead
+     * of walking .java files under a source directory.
+     */
+    LiteTarget(LiteClasspath classpath, String localDotPath, boolean recurse, boolean requireClassAnnotation) {
+        this((String) null, localDotPath, recurse, requireClassAnnotation);
+        this.classpath = classpath;
+    }
+
+    /**
+     * Sets the class loader that discovered classes are read from and loaded with.
+     * By default this is the loader that loaded LiteUnit.
+     */
+    void setClassLoader(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * Loads every discovered class with a tracking LiteClassLoader of its own, over the given
+     * classpath roots and with the class loader above as its parent, so that the classes each
+     * test class touches can be told apart. Pass null to load them all with the one loader.
+     */
+    void setTrackClasses(List<Path> roots) {
+        this.trackedRoots = roots;
+    }
+
+    /**
+     * Uses the given index to skip classes that haven't changed since they were last scanned.
+     */
+    void setIndex(LiteIndex index) {
+        this.index = index;
+    }
+
     ArrayList<LiteTest> makeTestList(){
 
         ArrayList<LiteTest> discoveredTests = new ArrayList<>();
-        scan(fullSlashPath, localDotPath, discoveredTests);
+        if(classpath != null) {
+            for(String className : classpath.findClasses(localDotPath, recurse))
+                found(className, discoveredTests);
+        }
+        else {
+            scan(fullSlashPath, localDotPath, discoveredTests);
+        }
         return discoveredTests;
 
     }
 
+    /**
+     * Same as makeTestList, but puts the tests of each class on the queue as soon as that
+     * class has been scanned, instead of returning them all at the end. Waits whenever the
+     * queue is full. If the thread is interrupted the rest of the classes are skipped.
+     */
+    void streamTestList(BlockingQueue<List<LiteTest>> batches){
+        this.batches = batches;
+        try {
+            makeTestList();
+        } finally {
+            this.batches = null;
+        }
+    }
+
+    /**
+     * Scans a class found by either kind of target, handing its tests over straight away
+     * when streaming.
+     */
+    private void found(String className, ArrayList<LiteTest> discoveredTests){
+
+        if(batches == null) {
+            scanClassName(className, discoveredTests);
+            return;
+        }
+        if(Thread.currentThread().isInterrupted())
+            return;
+        ArrayList<LiteTest> classTests = new ArrayList<>();
+        scanClassName(className, classTests);
+        if(classTests.isEmpty())
+            return;
+        try {
+            batches.put(classTests);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     private void scan(String slashPath, String dotPath, ArrayList<LiteTest> discoveredTests){
 
         try {
@@ -52,9 +141,7 @@ class LiteTarget {
                 }
             }
             else if(currentFile.isFile() && isJava(currentFile)){
-                Class discoveredClass = Class.forName(dotPath);
-                if (isTest(discoveredClass))
-                    scanClass(discoveredClass, discoveredTests);
+                found(dotPath, discoveredTests);
             }
             else if(!isJava(currentFile))
                 scan(slashPath + ".java", dotPath, discoveredTests);
@@ -63,7 +150,123 @@ class LiteTarget {
         }
     }
 
-    private void scanClass(Class toScan, ArrayList<LiteTest> discoveredTests){
+    private void scanClassName(String className, ArrayList<LiteTest> discoveredTests){
+
+        if(className.contains("Lite"))
+            return;
+        URL location = classLoader.getResource(className.replace('.', '/') + ".class");
+        if(index != null) {
+            scanIndexed(className, location, discoveredTests);
+            return;
+        }
+
+        LiteClassFile classFile = readClassFile(location);
+        if(classFile != null && !mayBeTest(classFile))
+            return;
+        Class<?> discoveredClass = loadClass(className);
+        if (discoveredClass != null && isTest(discoveredClass))
+            scanClass(discoveredClass, discoveredTests);
+    }
+
+    /**
+     * Same as scanClassName, but answers from the index when the class file hasn't changed
+     * since it was last inspected, and records what it finds when it has.
+     */
+    private void scanIndexed(String className, URL location, ArrayList<LiteTest> discoveredTests){
+
+        LiteIndex.Entry stamp = LiteIndex.Entry.stampOf(location);
+        LiteIndex.Entry entry = index.get(className, stamp);
+
+        if(entry == null) {
+            LiteClassFile classFile = readClassFile(location);
+            if(classFile != null && !hasTestMethods(classFile)) {
+                if(stamp != null) {
+                    stamp.classAnnotated = classFile.hasClassAnnotation();
+                    index.put(className, stamp);
+                }
+                return;
+            }
+            Class<?> discoveredClass = loadClass(className);
+            if(discoveredClass == null)
+                return;
+            if(stamp != null) {
+                stamp.classAnnotated = discoveredClass.isAnnotationPresent(LiteClass.class);
+                for (Method method : discoveredClass.getDeclaredMethods()) {
+                    if (isTest(method))
+                        stamp.addMethod(method.getName(), LiteTest.reqIdOf(method));
+                }
+                index.put(className, stamp);
+            }
+            if (isTest(discoveredClass))
+                scanClass(discoveredClass, discoveredTests);
+            return;
+        }
+
+        if(entry.methods.isEmpty() || (requireClassAnnotation && !entry.classAnnotated))
+            return;
+        Class<?> discoveredClass = loadClass(className);
+        if(discoveredClass == null)
+            return;
+        ArrayList<LiteTest> indexedTests = new ArrayList<>();
+        try {
+            for (String methodName : entry.methods)
+                indexedTests.add(new LiteTest(discoveredClass, findTestMethod(discoveredClass, methodName)));
+        } catch (NoSuchMethodException e) {
+            // the class changed without its stamp changing, so fall back to a full scan
+            index.remove(className);
+            indexedTests.clear();
+            if (isTest(discoveredClass))
+                scanClass(discoveredClass, indexedTests);
+        }
+        discoveredTests.addAll(indexedTests);
+    }
+
+    static Method findTestMethod(Class<?> toSearch, String methodName) throws NoSuchMethodException {
+        for (Method method : toSearch.getDeclaredMethods()) {
+            if (method.getName().equals(methodName) && isTest(method))
+                return method;
+        }
+        throw new NoSuchMethodException(toSearch.getName() + "." + methodName);
+    }
+
+    private Class<?> loadClass(String className){
+        try {
+            if(trackedRoots != null)
+                return Class.forName(className, false, new LiteClassLoader(trackedRoots, classLoader, true));
+            return Class.forName(className, false, classLoader);
+        } catch (Exception | LinkageError e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Reads the class file at the given location without loading the class. Returns null
+     * if there is nothing there or it can't be read.
+     */
+    private LiteClassFile readClassFile(URL location) {
+        if(location == null)
+            return null;
+        try (InputStream stream = location.openStream()) {
+            return LiteClassFile.read(stream);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks a class file for the annotations that would make it a test class.
+     */
+    private boolean mayBeTest(LiteClassFile classFile) {
+        return (!requireClassAnnotation || classFile.hasClassAnnotation()) && hasTestMethods(classFile);
+    }
+
+    private boolean hasTestMethods(LiteClassFile classFile) {
+        return classFile.hasMethodAnnotation(LiteClassFile.TEST_ANNOTATION) ||
+                classFile.hasMethodAnnotation(LiteClassFile.BENCHMARK_ANNOTATION);
+    }
+
+    private void scanClass(Class<?> toScan, ArrayList<LiteTest> discoveredTests){
 
         for (Method method : toScan.getDeclaredMethods()) {
             if (isTest(method))
@@ -76,16 +279,20 @@ class LiteTarget {
         return toCheck.getName().contains(".java");
     }
 
-    private boolean isTest(Class toCheck) {
+    private boolean isTest(Class<?> toCheck) {
         return !toCheck.getName().contains("Lite") &&
                 (!requireClassAnnotation ||
                 toCheck.isAnnotationPresent(LiteClass.class));
     }
 
-    private boolean isTest(Method toCheck) {
-        return Modifier.isPublic(toCheck.getModifiers()) &&
-                toCheck.getParameterTypes().length == 0 &&
-                toCheck.isAnnotationPresent(test.annotations.LiteTest.class);
+    static boolean isTest(Method toCheck) {
+        if(!Modifier.isPublic(toCheck.getModifiers()))
+            return false;
+        Class<?>[] parameters = toCheck.getParameterTypes();
+        if(toCheck.isAnnotationPresent(test.annotations.LiteTest.class))
+            return parameters.length == 0 || toCheck.isAnnotationPresent(LiteParameters.class);
+        return toCheck.isAnnotationPresent(LiteBenchmark.class) &&
+                (parameters.length == 0 || (parameters.length == 1 && parameters[0] == LiteBlackhole.class));
     }
 
 
@@ -1,92 +1,422 @@
 package test;
 
-import java.lang.reflect.InvocationTargetException;
+import test.annotations.LiteBenchmark;
+import test.annotations.LiteClass;
+import test.annotations.LiteConcurrent;
+import test.annotations.LiteParameters;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
+import java.lang.reflect.Modifier;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
 
 class LiteTest implements Comparable<LiteTest> {
 
-    Class testClass;
+    private static final DateTimeFormatter STAMP_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+
+    Class<?> testClass;
     Method testMethod;
     String testId;
     boolean passed;
     Throwable error;
+    LiteFailure failure;    // the error once it has been captured, see release()
     String timeStamp;
+    long duration;      // nanoseconds
+    long timeoutMillis;
     boolean hasRun = false;
+    boolean skipped = false;   // true if the run was stopped before this test's turn
+    boolean serial;
+    boolean classSerial;
+    LiteFixture fixture;
+    LiteBench bench;        // null unless this is a @LiteBenchmark
+    LiteStress stress;      // null unless this is a @LiteConcurrent test
+    LiteProbe probe;        // what the last run cost besides time, null if it wasn't measured
+    boolean parameterized;
+    LiteCases cases;        // the current run's cases if the test is parameterized
+    int pinnedCount;        // times this test's virtual thread blocked while pinned
+    long pinnedDuration;    // nanoseconds spent blocked while pinned
+    String pinnedAt;        // where it was first pinned
+    private MethodHandle invoker;
 
-    LiteTest(Class testClass, Method testMethod){
+    LiteTest(Class<?> testClass, Method testMethod){
         this.testClass = testClass;
         this.testMethod = testMethod;
-        testId = testMethod.getAnnotation(test.annotations.LiteTest.class).reqId();
+        testId = reqIdOf(testMethod);
+        test.annotations.LiteTest annotation = testMethod.getAnnotation(test.annotations.LiteTest.class);
+        parameterized = testMethod.isAnnotationPresent(LiteParameters.class);
+        if(annotation != null) {
+            serial = annotation.serial();
+            timeoutMillis = annotation.timeoutMillis();
+            LiteConcurrent concurrent = testMethod.getAnnotation(LiteConcurrent.class);
+            if(concurrent != null && !parameterized) {
+                stress = new LiteStress(concurrent);
+                serial = true;
+            }
+        }
+        else {
+            bench = new LiteBench(testMethod.getAnnotation(LiteBenchmark.class));
+            serial = true;
+        }
+        LiteClass classAnnotation = testClass.getAnnotation(LiteClass.class);
+        classSerial = classAnnotation != null && classAnnotation.serial();
+    }
+
+    static String reqIdOf(Method testMethod){
+        test.annotations.LiteTest annotation = testMethod.getAnnotation(test.annotations.LiteTest.class);
+        if(annotation != null)
+            return annotation.reqId();
+        return testMethod.getAnnotation(LiteBenchmark.class).reqId();
     }
 
     void execute(){
+        if(parameterized) {
+            if(openCases()) {
+                runCases(Collections.<LiteReporter>emptyList(), this);
+                closeCases();
+            }
+            return;
+        }
+        Object testInstance;
         try {
-            execute(testClass.newInstance());
-        } catch (Exception e) {
-            e.printStackTrace();
+            testInstance = getFixture().enter();
+        } catch (Throwable e) {
+            stamp();
+            error = e;
+            failure = null;
+            passed = false;
+            probe = null;
+            fixture.exit();
+            return;
+        }
+        try {
+            execute(testInstance);
+        } finally {
+            fixture.exit();
         }
     }
     void execute(Object testInstance){
-        try{
-            testMethod.invoke(testInstance);
-            stamp();
-            passed = true;
-        } catch (InvocationTargetException e) {
-            stamp();
-            error = e.getTargetException();
-            passed = false;
-
-        } catch (Exception e) {
+        try {
+            bind();
+        } catch (ReflectiveOperationException e) {
             e.printStackTrace();
+            return;
         }
+        LiteProbe runProbe = bench == null && stress == null ? new LiteProbe() : null;
+        long start = System.nanoTime();
+        Throwable thrown = run(testInstance, null, runProbe);
+        duration = System.nanoTime() - start;
+        stamp();
+        error = thrown;
+        failure = null;
+        passed = thrown == null;
+        probe = runProbe;
     }
 
-    String getTestException() {
-        if(error == null)
-            return "No exception";
+    /**
+     * Runs the test method between the fixture's before and after methods, and returns the
+     * first error, or null if everything passed.
+     * @param arguments A parameterized test's arguments for this case, null for other tests.
+     * @param probe Measures the test method itself, if not null.
+     */
+    private Throwable run(Object testInstance, Object[] arguments, LiteProbe probe) {
+        Throwable thrown = null;
+        try {
+            getFixture().before(testInstance);
+        } catch (Throwable e) {
+            thrown = e;
+        }
+        if(thrown == null)
+            thrown = invoke(testInstance, arguments, probe);
+        try {
+            fixture.after(testInstance);
+        } catch (Throwable e) {
+            if(thrown == null)
+                thrown = e;
+        }
+        return thrown;
+    }
 
-        StringBuilder builder = new StringBuilder();
-        builder.append(error.getClass().getName());
-        builder.append("\n");
-        if(error.getMessage() != null && !error.getMessage().equals("")) {
-            builder.append(error.getMessage());
-            builder.append("\n");
-        }
-
-        StackTraceElement[] stackTrace = error.getStackTrace();
-        for (StackTraceElement element : stackTrace) {
-            if (element.toString().contains(testMethod.getName())) {
-                builder.append(element.toString());
-                builder.append("\n");
+    /**
+     * Opens the source of a parameterized test's cases for a new run. If that fails, the
+     * test is failed, its fixture is released, and false is returned.
+     */
+    boolean openCases() {
+        try {
+            bind();
+            cases = LiteCases.open(testClass, testMethod);
+            return true;
+        } catch (Throwable e) {
+            fail(e);
+            getFixture().exit();
+            return false;
+        }
+    }
+
+    /**
+     * Runs cases of a parameterized test until there are none left. Several threads may call
+     * this at once to share the cases out. Each case runs on an instance of its own from the
+     * fixture, and is reported on its own as the method name followed by the case's index.
+     * @param lock The lock to hold while calling the reporters.
+     */
+    void runCases(List<LiteReporter> reporters, Object lock) {
+        while(true) {
+            LiteCases.Case next;
+            try {
+                next = cases.next();
+            } catch (RuntimeException e) {
+                cases.abort(e, "reading the cases");
+                return;
+            }
+            if(next == null)
+                return;
+
+            String caseName = testMethod.getName() + "[" + next.index + "]";
+            if(!reporters.isEmpty()) {
+                synchronized (lock) {
+                    for(LiteReporter reporter : reporters)
+                        reporter.testStarted(getClassName(), caseName);
+                }
+            }
+
+            LiteProbe caseProbe = new LiteProbe();
+            long start = System.nanoTime();
+            Throwable thrown = next.readError;
+            if(thrown == null) {
+                Object testInstance;
+                try {
+                    testInstance = getFixture().enter();
+                } catch (Throwable e) {
+                    cases.abort(e, "setting up " + getClassName());
+                    return;
+                }
+                thrown = run(testInstance, next.arguments, caseProbe);
+            }
+            long caseDuration = System.nanoTime() - start;
+            cases.record(next, caseDuration, thrown, caseProbe);
+
+            if(!reporters.isEmpty()) {
+                LiteFailure caseFailure = thrown == null ? null : LiteFailure.capture(thrown);
+                LiteResult result = new LiteResult(getClassName(), caseName, testId, thrown == null, caseDuration,
+                        STAMP_FORMAT.format(LocalDateTime.now()),
+                        caseFailure == null ? null : caseFailure.getException(testMethod.getName()),
+                        caseFailure == null ? null : caseFailure.getTrace());
+                result.setUsage(caseProbe);
+                synchronized (lock) {
+                    for(LiteReporter reporter : reporters)
+                        reporter.testFinished(result);
+                }
             }
         }
-        builder.append(stackTrace[0].toString());
+    }
 
-        return builder.toString();
+    /**
+     * Closes the source of a parameterized test's cases, sets the test's outcome from them and
+     * releases its fixture. The test fails if any of its cases did.
+     */
+    void closeCases() {
+        try {
+            cases.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        stamp();
+        duration = cases.duration;
+        error = cases.firstError;
+        failure = null;
+        passed = error == null;
+        probe = cases.probe;
+        fixture.exit();
     }
 
-    String getTestTrace() {
-        if(error == null)
-            return "No trace";
+    /**
+     * Returns the fixture this test shares with the rest of its class, or a fixture of its
+     * own if the test is being run by itself.
+     */
+    LiteFixture getFixture() {
+        if(fixture == null) {
+            fixture = new LiteFixture(testClass);
+            fixture.expect();
+        }
+        return fixture;
+    }
 
-        StringBuilder builder = new StringBuilder();
-        builder.append(error.getClass().getName());
-        builder.append("\n");
-        if(error.getMessage() != null && !error.getMessage().equals("")) {
-            builder.append(error.getMessage());
-            builder.append("\n");
+    /**
+     * Runs the test method and returns whatever it threw, or null if it passed. Tests with a
+     * timeout are run on a separate daemon thread that is interrupted and left behind if it
+     * doesn't finish in time. Stress tests handle their own timeout, see LiteStress.
+     */
+    private Throwable invoke(final Object testInstance, final Object[] arguments, LiteProbe probe) {
+        if(bench != null)
+            return bench.run(invoker, testInstance);
+        if(stress != null)
+            return stress.run(invoker, testInstance, timeoutMillis, testMethod.getName());
+        if(timeoutMillis <= 0) {
+            if(probe != null)
+                probe.start();
+            try {
+                call(testInstance, arguments);
+                return null;
+            } catch (Throwable e) {
+                return e;
+            } finally {
+                if(probe != null)
+                    probe.stop();
+            }
         }
 
-        for (StackTraceElement element : error.getStackTrace()) {
-            if (element.toString().contains("reflect"))
-                break;
-            builder.append(element.toString());
-            builder.append("\n");
+        final Throwable[] thrown = new Throwable[1];
+        final LiteProbe runnerProbe = probe == null ? null : new LiteProbe();
+        Thread runner = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                if(runnerProbe != null)
+                    runnerProbe.start();
+                try {
+                    call(testInstance, arguments);
+                } catch (Throwable e) {
+                    thrown[0] = e;
+                }
+                if(runnerProbe != null)
+                    runnerProbe.stop();
+            }
+        }, "LiteTest-" + testMethod.getName());
+        runner.setDaemon(true);
+        runner.start();
+        try {
+            runner.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-        builder.deleteCharAt(builder.length()-1);
-        return builder.toString();
+
+        if(runner.isAlive()) {
+            StackTraceElement[] hungAt = runner.getStackTrace();
+            runner.interrupt();
+            TimeoutException timeout = new TimeoutException("Test timed out after " + timeoutMillis + " ms");
+            timeout.setStackTrace(hungAt);
+            return timeout;
+        }
+        if(probe != null)
+            probe.add(runnerProbe);
+        return thrown[0];
+    }
+
+    /**
+     * Calls the test method once through the bound handle, spreading a parameterized test's
+     * arguments over its parameters.
+     */
+    private void call(Object testInstance, Object[] arguments) throws Throwable {
+        if(parameterized)
+            invoker.invokeExact(testInstance, arguments);
+        else
+            invoker.invokeExact(testInstance);
+    }
+
+    /**
+     * Looks up a method handle for the test method the first time the test is run, adapted
+     * so that invokeExact can call it without boxing or varargs arrays. The constructor is
+     * bound the same way by the test's LiteFixture. A parameterized test's handle also takes
+     * the case's arguments as an Object[], which is spread over the method's parameters.
+     */
+    private void bind() throws ReflectiveOperationException {
+        if(invoker != null)
+            return;
+        MethodHandle method = MethodHandles.lookup().unreflect(testMethod);
+        if(bench != null && testMethod.getParameterTypes().length == 1)
+            method = MethodHandles.insertArguments(method, method.type().parameterCount() - 1, bench.blackhole);
+        if(Modifier.isStatic(testMethod.getModifiers()))
+            method = MethodHandles.dropArguments(method, 0, Object.class);
+        if(parameterized) {
+            int parameterCount = testMethod.getParameterTypes().length;
+            invoker = method.asType(method.type().changeParameterType(0, Object.class).changeReturnType(void.class))
+                    .asSpreader(Object[].class, parameterCount)
+                    .asType(MethodType.methodType(void.class, Object.class, Object[].class));
+            return;
+        }
+        invoker = method.asType(MethodType.methodType(void.class, Object.class));
+    }
+
+    /**
+     * Captures the error as a LiteFailure and then lets go of it, so the Throwable and everything
+     * it refers to can be collected once the test has been reported.
+     * @param pool Failures already captured in this run. An identical failure is shared instead
+     *             of being kept twice. May be null.
+     */
+    void release(Map<LiteFailure, LiteFailure> pool) {
+        if(error == null)
+            return;
+        getFailure();
+        if(pool != null)
+            failure = failure.intern(pool);
+        error = null;
+        if(cases != null)
+            cases.firstError = null;
+    }
+
+    /**
+     * Marks the test as failed without running it.
+     */
+    void fail(Throwable cause) {
+        stamp();
+        error = cause;
+        failure = null;
+        passed = false;
+        probe = null;
+    }
+
+    /**
+     * Marks the test as skipped instead of running it, and tells its fixture it won't be coming,
+     * so the class is still torn down if it was set up.
+     */
+    void skip() {
+        skipped = true;
+        getFixture().exit();
+    }
+
+    /**
+     * Copies in the outcome of this test from a run somewhere else, such as a forked JVM.
+     */
+    void apply(LiteResult result) {
+        hasRun = true;
+        passed = result.isPassed();
+        duration = result.getDuration();
+        timeStamp = result.getTimeStamp();
+        failure = result.isPassed() ? null : LiteFailure.fromText(result.getException(), result.getTrace());
+        error = null;
+        probe = LiteProbe.from(result);
+    }
+
+    LiteResult toResult() {
+        LiteResult result = new LiteResult(getClassName(), testMethod.getName(), testId, passed, duration, timeStamp,
+                passed ? null : getTestException(), passed ? null : getTestTrace());
+        result.setUsage(probe);
+        return result;
+    }
+
+    String getTestException() {
+        if(getFailure() == null)
+            return "No exception";
+        return failure.getException(testMethod.getName());
+    }
+
+    String getTestTrace() {
+        if(getFailure() == null)
+            return "No trace";
+        return failure.getTrace();
+    }
+
+    private LiteFailure getFailure() {
+        if(failure == null && error != null)
+            failure = LiteFailure.capture(error);
+        return failure;
     }
 
     String getClassName(){
@@ -100,6 +430,8 @@ class LiteTest implements Comparable<LiteTest> {
     }
 
     String getShortResult(){
+        if(skipped)
+            return testMethod.getName() + " -->  SKIPPED";
         if(!hasRun)
             return "Test has not yet been executed";
 
@@ -110,6 +442,17 @@ class LiteTest implements Comparable<LiteTest> {
             builder.append(" SUCCESS");
         else
             builder.append(" FAILURE");
+        builder.append(" (");
+        builder.append(formatDuration(duration));
+        if(cases != null) {
+            builder.append(", ");
+            if(cases.failed == 0)
+                builder.append(cases.count).append(" cases");
+            else
+                builder.append(cases.failed).append(" of ").append(cases.count).append(" cases failed, first ")
+                        .append(cases.firstFailure);
+        }
+        builder.append(")");
         return builder.toString();
     }
 
@@ -125,8 +468,12 @@ class LiteTest implements Comparable<LiteTest> {
         return nameDiff;
     }
 
+    static String formatDuration(long nanos){
+        return String.format(Locale.ROOT, "%.3f ms", nanos / 1000000.0);
+    }
+
     private void stamp(){
         hasRun = true;
-        timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(Calendar.getInstance().getTime());
+        timeStamp = STAMP_FORMAT.format(LocalDateTime.now());
     }
 }
@@ -0,0 +1,145 @@
+package test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Makes the threads LiteExecutor runs tests on when asked for virtual threads, and watches them
+ * for pinning. Virtual threads are looked up by reflection so that LiteUnit still runs on JVMs
+ * from before Java 21, where platform threads are made instead.
+ * <br>
+ * A virtual thread that blocks inside a synchronized block, or in native code, can't leave its
+ * carrier thread, so the tests sharing that carrier stall behind it. While the tests run, a
+ * flight recording of the JVM's jdk.VirtualThreadPinned events is kept, and afterwards each
+ * event is charged to the test found on its stack.
+ */
+class LiteVirtualThreads {
+
+    static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    static final int PINNED_THRESHOLD_MILLIS = 20;
+
+    private static final ThreadFactory VIRTUAL_FACTORY = lookupFactory();
+
+    private Recording recording;
+
+    /**
+     * The factory of Thread.ofVirtual(), or null if this JVM doesn't have virtual threads.
+     */
+    private static ThreadFactory lookupFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "LiteUnit-virtual-", 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    static boolean isSupported() {
+        return VIRTUAL_FACTORY != null;
+    }
+
+    /**
+     * Virtual threads if the JVM has them, otherwise daemon platform threads.
+     */
+    static ThreadFactory factory() {
+        if(VIRTUAL_FACTORY != null)
+            return VIRTUAL_FACTORY;
+        final AtomicInteger count = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "LiteUnit-platform-" + count.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * Starts recording pinned virtual threads. Does nothing if the JVM has no virtual threads
+     * or flight recording isn't available.
+     */
+    void startRecording() {
+        if(!isSupported())
+            return;
+        try {
+            recording = new Recording();
+            recording.enable(PINNED_EVENT).withStackTrace().withThreshold(Duration.ofMillis(PINNED_THRESHOLD_MILLIS));
+            recording.start();
+        } catch (Exception | Error e) {
+            recording = null;
+        }
+    }
+
+    /**
+     * Stops recording and adds each pinned event to the test it happened in, going by the
+     * first frame of its stack that is one of the tests' methods.
+     */
+    void stopRecording(Collection<LiteTest> tests) {
+        if(recording == null)
+            return;
+        Path dump = null;
+        try {
+            recording.stop();
+            dump = Files.createTempFile("liteunit-pinning", ".jfr");
+            recording.dump(dump);
+
+            Map<String, LiteTest> byMethod = new HashMap<>();
+            for(LiteTest test : tests)
+                byMethod.put(test.getClassName() + "#" + test.testMethod.getName(), test);
+            for(RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+                if(event.getEventType().getName().equals(PINNED_EVENT))
+                    charge(event, byMethod);
+            }
+        } catch (Exception e) {
+            System.out.println("!!TEST DRIVER ERROR!!\n*Could not read the pinned virtual thread events");
+            e.printStackTrace();
+        } finally {
+            recording.close();
+            recording = null;
+            if(dump != null) {
+                try {
+                    Files.deleteIfExists(dump);
+                } catch (Exception e) {
+                    // it is only a temp file
+                }
+            }
+        }
+    }
+
+    private void charge(RecordedEvent event, Map<String, LiteTest> byMethod) {
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if(stackTrace == null)
+            return;
+        String pinnedAt = null;
+        for(RecordedFrame frame : stackTrace.getFrames()) {
+            if(!frame.isJavaFrame())
+                continue;
+            String className = frame.getMethod().getType().getName();
+            LiteTest test = byMethod.get(className + "#" + frame.getMethod().getName());
+            if(pinnedAt == null && !className.startsWith("java.") && !className.startsWith("jdk."))
+                pinnedAt = className + "." + frame.getMethod().getName() + "(line " + frame.getLineNumber() + ")";
+            if(test != null) {
+                test.pinnedCount++;
+                test.pinnedDuration += event.getDuration().toNanos();
+                if(test.pinnedAt == null)
+                    test.pinnedAt = pinnedAt;
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package test.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Methods marked with this annotation are run on the test class's instance after each of its
+ * tests, even if the test failed. They must be public and take no parameters. An error
+ * thrown here fails the test unless the test had already failed.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LiteAfter {
+}
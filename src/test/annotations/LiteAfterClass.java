@@ -0,0 +1,16 @@
+package test.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Methods marked with this annotation are run once, after the last test in the class has
+ * finished. They follow the same rules as @LiteBeforeClass methods, and are only run if
+ * the class was set up successfully.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LiteAfterClass {
+}
@@ -0,0 +1,16 @@
+package test.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Methods marked with this annotation are run on the test class's instance before each of its
+ * tests. They must be public and take no parameters. If one of them throws, the test is
+ * not run and is marked as a failure with that error.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LiteBefore {
+}
@@ -0,0 +1,18 @@
+package test.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Methods marked with this annotation are run once, before the first test in the class.
+ * They must be public, take no parameters and be static, unless the class is marked
+ * with LiteClass(sharedInstance = true), in which case they may also be instance methods
+ * that run on the shared instance. If one of them throws, every test in the class fails with
+ * that error.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LiteBeforeClass {
+}
@@ -0,0 +1,32 @@
+package test.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Methods marked with this annotation are queued as benchmarks rather than ordinary tests.
+ * A benchmark is called batchSize times per iteration, first for the warmup iterations and
+ * then for the measured ones, and the driver reports its throughput, the mean, median and
+ * 99th percentile time per call, and the bytes allocated per call.
+ * <br>
+ * Like tests, benchmarks must be public and return void. They may take no parameters, or a
+ * single LiteBlackhole that results should be passed to so the JIT can't throw away the
+ * work that produced them. Benchmarks always run serially.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LiteBenchmark {
+    String reqId() default "";
+
+    int warmupIterations() default 5;
+
+    int iterations() default 10;
+
+    /**
+     * The number of calls timed together as one iteration. Larger batches hide the cost of
+     * reading the clock for methods that only take a few nanoseconds.
+     */
+    int batchSize() default 1000;
+}
@@ -13,4 +13,20 @@ import java.lang.annotation.Target;
 @Target(ElementType.TYPE)
 @Retention(RetentionPolicy.RUNTIME)
 public @interface LiteClass {
+
+    /**
+     * Set to true to run the tests in this class one after another on a single
+     * worker when tests are executed in parallel. Tests from other classes may
+     * still run alongside them.
+     */
+    boolean serial() default false;
+
+    /**
+     * Set to true to create a single instance of the class and run all of its tests on it,
+     * instead of creating a new instance for every test. This lets expensive state built by
+     * a constructor or a LiteBeforeClass method be shared by the class's tests. Tests may
+     * still use the instance from several threads at once when running in parallel, unless
+     * the class is also marked serial.
+     */
+    boolean sharedInstance() default false;
 }
@@ -0,0 +1,40 @@
+package test.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Turns a @LiteTest method into a stress test, which is called over and over by several
+ * threads at once, all on the same instance of the test class. The threads wait behind a
+ * barrier until every one of them is ready, so that they really do start together.
+ * <br>
+ * The test fails if any call does. Besides the first failure, the driver reports how many
+ * calls failed on each thread, the throughput of all the threads together, and how often and
+ * for how long the threads were blocked on monitors or left waiting. The methods marked
+ * with @LiteBefore and @LiteAfter run once around the whole stress run, not around each call.
+ * <br>
+ * Stress tests always run serially, so that other tests don't compete for the processors.
+ * The annotation is ignored on parameterized tests.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LiteConcurrent {
+
+    /**
+     * The number of threads calling the method at once.
+     */
+    int threads() default 4;
+
+    /**
+     * The number of times each thread calls the method.
+     */
+    int iterations() default 1000;
+
+    /**
+     * If more than 0, each thread keeps calling the method for this many milliseconds instead
+     * of a set number of times.
+     */
+    long durationMillis() default 0;
+}
@@ -0,0 +1,38 @@
+package test.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Turns a @LiteTest method that takes parameters into a parameterized test, which is called
+ * once for every case its source provides. Set exactly one of provider and file.
+ * <br>
+ * Cases are read from the source one at a time as they are run, so a source may provide more
+ * cases than would fit in memory. Each case is reported on its own, as the method name followed
+ * by the case's index in brackets, and the method as a whole fails if any of its cases do.
+ * When tests are executed in parallel, the cases of a method are shared out among the workers.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LiteParameters {
+
+    /**
+     * The name of a public static method in the same class, taking no parameters, that returns
+     * the cases as an Iterable, an Iterator, a Stream or an array. Each element is an Object[]
+     * holding one case's arguments, or just the argument itself if the test takes one parameter.
+     */
+    String provider() default "";
+
+    /**
+     * The path of a file to read the cases from, relative to the project root. A file ending in
+     * .csv holds one case per line, with the arguments separated by commas and optionally
+     * quoted; blank lines and lines starting with # are skipped. Any other file is read as
+     * binary, with each case's arguments written one after another by DataOutputStream in
+     * the order of the parameters.
+     * <br>
+     * Parameters may be Strings, primitives, their wrappers or enums.
+     */
+    String file() default "";
+}
@@ -14,4 +14,18 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface LiteTest {
     String reqId() default "";
+
+    /**
+     * Set to true to keep this test out of the worker pool when tests are executed
+     * in parallel. Serial tests are run one at a time on the calling thread after
+     * all of the parallel tests have finished.
+     */
+    boolean serial() default false;
+
+    /**
+     * The number of milliseconds the test may run before it is interrupted and marked
+     * as a failure. A hung test is abandoned on its own daemon thread so the rest of
+     * the tests can carry on. 0, the default, means no timeout.
+     */
+    long timeoutMillis() default 0;
 }